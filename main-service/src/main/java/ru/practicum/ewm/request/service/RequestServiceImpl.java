@@ -19,6 +19,7 @@ import ru.practicum.ewm.request.repository.RequestRepository;
 import ru.practicum.ewm.user.model.User;
 import ru.practicum.ewm.user.service.UserService;
 
+import javax.transaction.Transactional;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -45,6 +46,7 @@ public class RequestServiceImpl implements RequestService {
     }
 
     @Override
+    @Transactional
     public EventRequestResult updateStatusOfEvent(Long userId, Long eventId, EventRequestStatus requestStatus) {
         checkIfUserExist(userId);
         Event event = checkOwnerOfEvent(userId, eventId);
@@ -65,7 +67,7 @@ public class RequestServiceImpl implements RequestService {
         switch (status) {
             case REJECTED:
                 allInputRequests.forEach(request -> request.setStatus(RequestState.REJECTED));
-                allInputRequests.forEach(repository::saveAndFlush);
+                repository.saveAll(allInputRequests);
                 List<RequestToEvent> rejectedRequests = allInputRequests
                         .stream()
                         .map(mapper::toDto)
@@ -131,7 +133,7 @@ public class RequestServiceImpl implements RequestService {
 
         if (lastForConfirm == 1) {
             requests.forEach(request -> request.setStatus(RequestState.CONFIRMED));
-            requests.forEach(repository::saveAndFlush);
+            repository.saveAll(requests);
             return requests
                     .stream()
                     .map(mapper::toDto)
@@ -141,7 +143,7 @@ public class RequestServiceImpl implements RequestService {
         if (lastForConfirm > max) {
             List<Request> requestsForConfirm = requests.subList(0, max);
             requestsForConfirm.forEach(request -> request.setStatus(RequestState.CONFIRMED));
-            requestsForConfirm.forEach(repository::saveAndFlush);
+            repository.saveAll(requestsForConfirm);
             return requestsForConfirm
                     .stream()
                     .map(mapper::toDto)
@@ -149,7 +151,7 @@ public class RequestServiceImpl implements RequestService {
         }
         List<Request> requestsForConfirm = requests.subList(0, lastForConfirm);
         requestsForConfirm.forEach(request -> request.setStatus(RequestState.CONFIRMED));
-        requestsForConfirm.forEach(repository::saveAndFlush);
+        repository.saveAll(requestsForConfirm);
         return requestsForConfirm
                 .stream()
                 .map(mapper::toDto)
@@ -166,7 +168,7 @@ public class RequestServiceImpl implements RequestService {
 
         List<Request> requestsForReject = requests.subList(lastForConfirm, max);
         requestsForReject.forEach(request -> request.setStatus(RequestState.REJECTED));
-        requestsForReject.forEach(repository::saveAndFlush);
+        repository.saveAll(requestsForReject);
         return requestsForReject
                 .stream()
                 .map(mapper::toDto)
@@ -0,0 +1,121 @@
+package ru.practicum.ewm;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+
+@Slf4j
+class CircuitBreaker {
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final Duration openDuration;
+    private final MeterRegistry meterRegistry;
+    private final boolean[] outcomes;
+    private int index;
+    private int calls;
+    private int failures;
+    private long openedAt;
+    private boolean probing;
+    private volatile State state = State.CLOSED;
+
+    CircuitBreaker(String name, double failureRateThreshold, int minimumCalls, int windowSize, Duration openDuration,
+                   MeterRegistry meterRegistry) {
+        this.name = name;
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.openDuration = openDuration;
+        this.meterRegistry = meterRegistry;
+        this.outcomes = new boolean[windowSize];
+        meterRegistry.gauge("stats.client.circuit.state", this, breaker -> breaker.getState().ordinal());
+    }
+
+    State getState() {
+        return state;
+    }
+
+    synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - openedAt < openDuration.toNanos()) {
+                    return false;
+                }
+                transition(State.HALF_OPEN);
+                probing = true;
+                return true;
+            default:
+                if (probing) {
+                    return false;
+                }
+                probing = true;
+                return true;
+        }
+    }
+
+    synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            reset();
+            transition(State.CLOSED);
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (calls >= minimumCalls && failures >= failureRateThreshold * calls) {
+                open();
+            }
+        }
+    }
+
+    synchronized void onIgnored() {
+        if (state == State.HALF_OPEN) {
+            probing = false;
+        }
+    }
+
+    private void record(boolean failure) {
+        if (calls == outcomes.length) {
+            if (outcomes[index]) {
+                failures--;
+            }
+        } else {
+            calls++;
+        }
+        outcomes[index] = failure;
+        if (failure) {
+            failures++;
+        }
+        index = (index + 1) % outcomes.length;
+    }
+
+    private void open() {
+        reset();
+        openedAt = System.nanoTime();
+        transition(State.OPEN);
+    }
+
+    private void reset() {
+        index = 0;
+        calls = 0;
+        failures = 0;
+        probing = false;
+    }
+
+    private void transition(State to) {
+        log.info("The {} circuit moved from {} to {}", name, state, to);
+        state = to;
+        meterRegistry.counter("stats.client.circuit.transitions", "state", to.name().toLowerCase()).increment();
+    }
+}
@@ -0,0 +1,189 @@
+package ru.practicum.ewm;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+@Slf4j
+class HitBatcher {
+    private final Function<List<EndpointHit>, CompletableFuture<EndpointHitBatchResult>> sender;
+    private final BiPredicate<EndpointHit, Throwable> retry;
+    private final int capacity;
+    private final int maxSize;
+    private final boolean aggregate;
+    private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ScheduledExecutorService flusher;
+
+    HitBatcher(Function<List<EndpointHit>, CompletableFuture<EndpointHitBatchResult>> sender,
+               BiPredicate<EndpointHit, Throwable> retry, int capacity, int maxSize, Duration flushInterval,
+               boolean aggregate) {
+        this.sender = sender;
+        this.retry = retry;
+        this.capacity = capacity;
+        this.maxSize = maxSize;
+        this.aggregate = aggregate;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stats-client-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = flushInterval.toMillis();
+        flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    void add(EndpointHit endpointHit, Consumer<Throwable> onFailure) {
+        if (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            StatsClientException e = new StatsClientException("The stats batch queue is full");
+            if (!retry.test(endpointHit, e)) {
+                onFailure.accept(e);
+            }
+            return;
+        }
+        queue.add(new Pending(endpointHit, onFailure));
+        if (size.get() >= maxSize && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(this::flushQuietly);
+        }
+    }
+
+    void stop(Duration timeout) {
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("The stats batch flusher did not stop in {}", timeout);
+            }
+            List<CompletableFuture<?>> sent = new ArrayList<>();
+            while (!queue.isEmpty()) {
+                sent.add(flush());
+            }
+            CompletableFuture.allOf(sent.toArray(new CompletableFuture[0]))
+                    .get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException e) {
+            log.warn("Stopped with stats batches still in flight after {}", timeout);
+        } catch (Exception e) {
+            log.warn("Failed to drain the stats batch queue: {}", e.getMessage());
+        }
+    }
+
+    private void flushQuietly() {
+        flushRequested.set(false);
+        try {
+            do {
+                flush();
+            } while (size.get() >= maxSize);
+        } catch (RuntimeException e) {
+            log.warn("Failed to flush a stats batch", e);
+        }
+    }
+
+    private CompletableFuture<?> flush() {
+        List<Pending> batch = new ArrayList<>(maxSize);
+        Pending pending;
+        while (batch.size() < maxSize && (pending = queue.poll()) != null) {
+            batch.add(pending);
+        }
+        if (batch.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        size.addAndGet(-batch.size());
+
+        List<Sent> sent = new ArrayList<>(batch.size());
+        if (aggregate) {
+            sent.addAll(aggregate(batch));
+        } else {
+            batch.forEach(item -> sent.add(new Sent(item.getHit(), List.of(item))));
+        }
+        List<EndpointHit> hits = new ArrayList<>(sent.size());
+        sent.forEach(item -> hits.add(item.getHit()));
+        return sender.apply(hits).whenComplete((result, e) -> {
+            if (e != null) {
+                for (Sent item : sent) {
+                    if (!retry.test(item.getHit(), e)) {
+                        item.getSources().forEach(source -> source.getOnFailure().accept(e));
+                    }
+                }
+            } else if (result != null && result.getRejected() != null && result.getRejected() > 0) {
+                log.warn("The stats server rejected {} of {} batched hits", result.getRejected(), hits.size());
+            }
+        });
+    }
+
+    private List<Sent> aggregate(List<Pending> batch) {
+        List<Sent> full = new ArrayList<>();
+        Map<HitKey, Sent> hits = new LinkedHashMap<>();
+        for (Pending item : batch) {
+            EndpointHit hit = item.getHit();
+            int weight = hit.getWeight() == null ? 1 : hit.getWeight();
+            HitKey key = new HitKey(hit.getApp(), hit.getUri(), hit.getIp(),
+                    hit.getTimestamp() == null ? null : hit.getTimestamp().truncatedTo(ChronoUnit.SECONDS));
+            Sent existing = hits.get(key);
+            if (existing != null && existing.getHit().getWeight() + weight <= EndpointHit.MAX_WEIGHT) {
+                existing.getHit().setWeight(existing.getHit().getWeight() + weight);
+                existing.getSources().add(item);
+            } else {
+                if (existing != null) {
+                    full.add(existing);
+                }
+                List<Pending> sources = new ArrayList<>();
+                sources.add(item);
+                hits.put(key, new Sent(copy(hit, key.getSecond(), weight), sources));
+            }
+        }
+        full.addAll(hits.values());
+        return full;
+    }
+
+    private static EndpointHit copy(EndpointHit hit, LocalDateTime second, int weight) {
+        return EndpointHit.builder()
+                .hitId(hit.getHitId())
+                .app(hit.getApp())
+                .uri(hit.getUri())
+                .ip(hit.getIp())
+                .timestamp(second)
+                .weight(weight)
+                .build();
+    }
+
+    @Value
+    private static class Pending {
+        EndpointHit hit;
+        Consumer<Throwable> onFailure;
+    }
+
+    @Value
+    private static class Sent {
+        EndpointHit hit;
+        List<Pending> sources;
+    }
+
+    @Value
+    private static class HitKey {
+        String app;
+        String uri;
+        String ip;
+        LocalDateTime second;
+    }
+}
@@ -0,0 +1,213 @@
+package ru.practicum.ewm;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+@Slf4j
+class HitSpool {
+    private static final String SPOOL = "spool.ndjson";
+    private static final String OFFSET = "spool.offset";
+    private final ObjectMapper objectMapper;
+    private final Function<List<EndpointHit>, CompletableFuture<EndpointHitBatchResult>> sender;
+    private final Path directory;
+    private final long maxSize;
+    private final int batchSize;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final ScheduledExecutorService replayer;
+    private FileChannel spool;
+    private volatile long offset;
+    private volatile Duration backoff;
+
+    HitSpool(ObjectMapper objectMapper, Function<List<EndpointHit>, CompletableFuture<EndpointHitBatchResult>> sender,
+             Path directory, long maxSize, int batchSize, Duration initialBackoff, Duration maxBackoff) {
+        this.objectMapper = objectMapper;
+        this.sender = sender;
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.batchSize = batchSize;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.backoff = initialBackoff;
+        this.replayer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stats-client-spool");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void start() throws IOException {
+        Files.createDirectories(directory);
+        spool = FileChannel.open(directory.resolve(SPOOL), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        if (spool.size() > 0) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            spool.read(last, spool.size() - 1);
+            if (last.get(0) != '\n') {
+                spool.write(ByteBuffer.wrap(new byte[]{'\n'}), spool.size());
+            }
+        }
+        offset = Math.min(readOffset(), spool.size());
+        if (offset < spool.size()) {
+            log.info("Replaying {} bytes of spooled hits", spool.size() - offset);
+        }
+        schedule(initialBackoff);
+    }
+
+    void stop() throws IOException {
+        replayer.shutdownNow();
+        synchronized (this) {
+            if (spool != null) {
+                spool.close();
+            }
+        }
+    }
+
+    synchronized boolean add(EndpointHit endpointHit) {
+        try {
+            byte[] line = (objectMapper.writeValueAsString(endpointHit) + "\n").getBytes(StandardCharsets.UTF_8);
+            if (spool.size() + line.length > maxSize) {
+                log.warn("The stats spool is full, dropping a hit for {}", endpointHit.getUri());
+                return false;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(line);
+            while (buffer.hasRemaining()) {
+                spool.write(buffer, spool.size());
+            }
+            return true;
+        } catch (IOException e) {
+            log.warn("Failed to spool a hit for {}: {}", endpointHit.getUri(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void replay() {
+        List<EndpointHit> batch = new ArrayList<>();
+        long next;
+        try {
+            next = read(batch);
+        } catch (IOException e) {
+            log.warn("Failed to read the stats spool: {}", e.getMessage());
+            retry();
+            return;
+        }
+        if (next == offset) {
+            schedule(initialBackoff);
+            return;
+        }
+        if (batch.isEmpty()) {
+            commit(next);
+            schedule(Duration.ZERO);
+            return;
+        }
+        sender.apply(batch).whenComplete((result, e) -> {
+            if (e != null && StatsClient.isRetryable(StatsClient.unwrap(e))) {
+                log.debug("Failed to replay {} spooled hits: {}", batch.size(), e.getMessage());
+                retry();
+            } else {
+                if (e != null) {
+                    log.warn("Dropping {} spooled hits the stats server rejected: {}", batch.size(), e.getMessage());
+                }
+                commit(next);
+                backoff = initialBackoff;
+                schedule(Duration.ZERO);
+            }
+        });
+    }
+
+    private long read(List<EndpointHit> batch) throws IOException {
+        long position = offset;
+        long end;
+        synchronized (this) {
+            end = spool.size();
+        }
+        try (FileChannel channel = FileChannel.open(directory.resolve(SPOOL), StandardOpenOption.READ);
+             InputStream in = new BufferedInputStream(Channels.newInputStream(channel.position(position)))) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            long read = position;
+            while (batch.size() < batchSize && read < end) {
+                int b = in.read();
+                if (b < 0) {
+                    break;
+                }
+                read++;
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                position = read;
+                try {
+                    batch.add(objectMapper.readValue(line.toByteArray(), EndpointHit.class));
+                } catch (JsonProcessingException e) {
+                    log.warn("Skipping a malformed spooled hit: {}", e.getOriginalMessage());
+                }
+                line.reset();
+            }
+        }
+        return position;
+    }
+
+    private long readOffset() {
+        Path offsetPath = directory.resolve(OFFSET);
+        if (!Files.exists(offsetPath)) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(Files.readString(offsetPath).trim()));
+        } catch (IOException | NumberFormatException e) {
+            log.warn("Replaying the stats spool from the start, the offset is unreadable: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    private synchronized void commit(long next) {
+        try {
+            if (next >= spool.size()) {
+                spool.truncate(0);
+                offset = 0;
+            } else {
+                offset = next;
+            }
+            Path offsetPath = directory.resolve(OFFSET);
+            Path temp = offsetPath.resolveSibling(OFFSET + ".tmp");
+            Files.writeString(temp, Long.toString(offset));
+            Files.move(temp, offsetPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.warn("Failed to checkpoint the stats spool: {}", e.getMessage());
+        }
+    }
+
+    private void retry() {
+        Duration delay = backoff;
+        backoff = backoff.multipliedBy(2).compareTo(maxBackoff) > 0 ? maxBackoff : backoff.multipliedBy(2);
+        schedule(delay);
+    }
+
+    private void schedule(Duration delay) {
+        if (!replayer.isShutdown()) {
+            replayer.schedule(this::replay, delay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package ru.practicum.ewm;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+class LatencyWindow {
+    private final long[] samples;
+    private int index;
+    private int count;
+
+    LatencyWindow(int size) {
+        this.samples = new long[size];
+    }
+
+    synchronized void record(long nanos) {
+        samples[index] = nanos;
+        index = (index + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+    }
+
+    synchronized Duration percentile(double percentile) {
+        if (count == 0) {
+            return Duration.ZERO;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile * count) - 1;
+        return Duration.ofNanos(sorted[Math.max(0, Math.min(rank, count - 1))]);
+    }
+}
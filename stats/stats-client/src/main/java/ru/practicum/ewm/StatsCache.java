@@ -0,0 +1,126 @@
+package ru.practicum.ewm;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+class StatsCache {
+    private final long ttlNanos;
+    private final long bucketSeconds;
+    private final Map<Key, Entry> entries;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+
+    StatsCache(Duration ttl, Duration bucket, int maxSize, MeterRegistry meterRegistry) {
+        this.ttlNanos = ttl.toNanos();
+        this.bucketSeconds = Math.max(1, bucket.toSeconds());
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+        this.hits = meterRegistry.counter("stats.client.cache.hits");
+        this.misses = meterRegistry.counter("stats.client.cache.misses");
+        this.coalesced = meterRegistry.counter("stats.client.cache.coalesced");
+        meterRegistry.gauge("stats.client.cache.size", this, StatsCache::size);
+    }
+
+    Key key(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
+        List<String> normalized = uris == null ? null : uris.stream()
+                .distinct()
+                .sorted()
+                .collect(Collectors.toUnmodifiableList());
+        return new Key(start.truncatedTo(ChronoUnit.SECONDS), end.truncatedTo(ChronoUnit.SECONDS), normalized, unique);
+    }
+
+    boolean isCacheable(Key key) {
+        return isAligned(key.getStart()) && isAligned(key.getEnd());
+    }
+
+    CompletableFuture<List<ViewStats>> get(Key key, Supplier<CompletableFuture<List<ViewStats>>> loader) {
+        Entry entry;
+        boolean load = false;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry == null || entry.isExpired(System.nanoTime())) {
+                entry = new Entry();
+                entries.put(key, entry);
+                load = true;
+            }
+        }
+        if (load) {
+            misses.increment();
+            load(key, entry, loader);
+        } else if (entry.getFuture().isDone()) {
+            hits.increment();
+        } else {
+            coalesced.increment();
+        }
+        return entry.getFuture().copy();
+    }
+
+    private void load(Key key, Entry entry, Supplier<CompletableFuture<List<ViewStats>>> loader) {
+        CompletableFuture<List<ViewStats>> loaded;
+        try {
+            loaded = loader.get();
+        } catch (RuntimeException e) {
+            loaded = CompletableFuture.failedFuture(e);
+        }
+        loaded.whenComplete((stats, e) -> {
+            if (e != null) {
+                synchronized (entries) {
+                    entries.remove(key, entry);
+                }
+                entry.getFuture().completeExceptionally(e);
+            } else {
+                entry.expiresAt = System.nanoTime() + ttlNanos;
+                entry.getFuture().complete(List.copyOf(stats));
+            }
+        });
+    }
+
+    private int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private boolean isAligned(LocalDateTime time) {
+        return Math.floorMod(time.toEpochSecond(ZoneOffset.UTC), bucketSeconds) == 0;
+    }
+
+    @Getter
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    static class Key {
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private final List<String> uris;
+        private final Boolean unique;
+    }
+
+    private static class Entry {
+        @Getter
+        private final CompletableFuture<List<ViewStats>> future = new CompletableFuture<>();
+        private volatile long expiresAt = Long.MAX_VALUE;
+
+        boolean isExpired(long now) {
+            return future.isDone() && now - expiresAt >= 0;
+        }
+    }
+}
@@ -1,50 +1,382 @@
 package ru.practicum.ewm;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.EqualsAndHashCode;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class StatsClient {
     @Value("${stats-server.url:http://localhost:9090}")
     private String serverUrl;
+    @Value("${stats-server.max-in-flight:64}")
+    private int maxInFlight;
+    @Value("${stats-server.connect-timeout:2s}")
+    private Duration connectTimeout;
+    @Value("${stats-server.request-timeout:5s}")
+    private Duration requestTimeout;
+    @Value("${stats-server.batch.enabled:false}")
+    private boolean batchEnabled;
+    @Value("${stats-server.batch.capacity:10000}")
+    private int batchCapacity;
+    @Value("${stats-server.batch.max-size:500}")
+    private int batchMaxSize;
+    @Value("${stats-server.batch.flush-interval:200ms}")
+    private Duration batchFlushInterval;
+    @Value("${stats-server.batch.aggregate:true}")
+    private boolean batchAggregate;
+    @Value("${stats-server.spool.enabled:false}")
+    private boolean spoolEnabled;
+    @Value("${stats-server.spool.directory:data/stats-spool}")
+    private String spoolDirectory;
+    @Value("${stats-server.spool.max-size:64MB}")
+    private DataSize spoolMaxSize;
+    @Value("${stats-server.spool.initial-backoff:1s}")
+    private Duration spoolInitialBackoff;
+    @Value("${stats-server.spool.max-backoff:1m}")
+    private Duration spoolMaxBackoff;
+    @Value("${stats-server.circuit-breaker.enabled:true}")
+    private boolean circuitBreakerEnabled;
+    @Value("${stats-server.circuit-breaker.failure-rate-threshold:0.5}")
+    private double circuitBreakerFailureRateThreshold;
+    @Value("${stats-server.circuit-breaker.minimum-calls:10}")
+    private int circuitBreakerMinimumCalls;
+    @Value("${stats-server.circuit-breaker.window-size:20}")
+    private int circuitBreakerWindowSize;
+    @Value("${stats-server.circuit-breaker.open-duration:30s}")
+    private Duration circuitBreakerOpenDuration;
+    @Value("${stats-server.hedging.enabled:false}")
+    private boolean hedgingEnabled;
+    @Value("${stats-server.hedging.percentile:0.95}")
+    private double hedgingPercentile;
+    @Value("${stats-server.hedging.min-delay:20ms}")
+    private Duration hedgingMinDelay;
+    @Value("${stats-server.hedging.window-size:256}")
+    private int hedgingWindowSize;
+    @Value("${stats-server.fallback.capacity:1000}")
+    private int fallbackCapacity;
+    @Value("${stats-server.cache.enabled:true}")
+    private boolean cacheEnabled;
+    @Value("${stats-server.cache.ttl:1s}")
+    private Duration cacheTtl;
+    @Value("${stats-server.cache.bucket:1s}")
+    private Duration cacheBucket;
+    @Value("${stats-server.cache.max-size:1000}")
+    private int cacheMaxSize;
     private static final String API_SAVE = "/hit";
-    private static final String API_GET = "/stats?";
-    private static final String START_PARAM = "start=";
-    private static final String END_PARAM = "&end=";
-    private static final String URIS_PARAM = "&uris=";
-    private static final String UNIQUE_PARAM = "&unique=";
-    private final RestTemplate restTemplate = new RestTemplate();
+    private static final String API_SAVE_BATCH = "/hit/batch";
+    private static final String API_GET = "/stats";
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private HttpClient httpClient;
+    private Semaphore inFlight;
+    private HitBatcher batcher;
+    private HitSpool spool;
+    private CircuitBreaker circuitBreaker;
+    private LatencyWindow readLatency;
+    private Map<FallbackKey, List<ViewStats>> fallback;
+    private StatsCache cache;
+    private Counter hedgedReads;
+    private Counter fallbackReads;
+
+    @PostConstruct
+    public void start() throws IOException {
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .build();
+        inFlight = new Semaphore(maxInFlight);
+        if (circuitBreakerEnabled) {
+            circuitBreaker = new CircuitBreaker("stats-server", circuitBreakerFailureRateThreshold,
+                    circuitBreakerMinimumCalls, circuitBreakerWindowSize, circuitBreakerOpenDuration, meterRegistry);
+        }
+        readLatency = new LatencyWindow(hedgingWindowSize);
+        fallback = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<FallbackKey, List<ViewStats>> eldest) {
+                return size() > fallbackCapacity;
+            }
+        });
+        if (cacheEnabled) {
+            cache = new StatsCache(cacheTtl, cacheBucket, cacheMaxSize, meterRegistry);
+        }
+        hedgedReads = meterRegistry.counter("stats.client.reads.hedged");
+        fallbackReads = meterRegistry.counter("stats.client.reads.fallback");
+        if (batchEnabled) {
+            batcher = new HitBatcher(this::saveStatsBatchAsync, this::spool, batchCapacity, batchMaxSize,
+                    batchFlushInterval, batchAggregate);
+        }
+        if (spoolEnabled) {
+            spool = new HitSpool(objectMapper, this::saveStatsBatchAsync, Paths.get(spoolDirectory),
+                    spoolMaxSize.toBytes(), batchMaxSize, spoolInitialBackoff, spoolMaxBackoff);
+            spool.start();
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (batcher != null) {
+            batcher.stop(requestTimeout);
+        }
+        if (spool != null) {
+            spool.stop();
+        }
+    }
 
     public void saveStats(EndpointHit endpointHit) {
-        restTemplate.postForLocation(serverUrl + API_SAVE, endpointHit);
+        saveStats(endpointHit, e -> log.warn("Failed to save a hit for {}: {}", endpointHit.getUri(), e.getMessage()));
+    }
+
+    public void saveStats(EndpointHit endpointHit, Consumer<Throwable> onFailure) {
+        if (batcher != null) {
+            if (endpointHit.getHitId() == null) {
+                endpointHit.setHitId(UUID.randomUUID().toString());
+            }
+            batcher.add(endpointHit, e -> onFailure.accept(unwrap(e)));
+            return;
+        }
+        saveStatsAsync(endpointHit).whenComplete((ignored, e) -> {
+            if (e != null && !spool(endpointHit, e)) {
+                onFailure.accept(unwrap(e));
+            }
+        });
+    }
+
+    private boolean spool(EndpointHit endpointHit, Throwable e) {
+        return spool != null && isRetryable(unwrap(e)) && spool.add(endpointHit);
+    }
+
+    public CompletableFuture<Void> saveStatsAsync(EndpointHit endpointHit) {
+        if (endpointHit.getHitId() == null) {
+            endpointHit.setHitId(UUID.randomUUID().toString());
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(serverUrl + API_SAVE))
+                .timeout(requestTimeout)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(toJson(endpointHit)))
+                .build();
+        return send(request).thenApply(body -> null);
+    }
+
+    public CompletableFuture<EndpointHitBatchResult> saveStatsBatchAsync(List<EndpointHit> endpointHits) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(serverUrl + API_SAVE_BATCH))
+                .timeout(requestTimeout)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(toJson(endpointHits)))
+                .build();
+        return send(request).thenApply(body -> fromJson(body, EndpointHitBatchResult.class));
     }
 
     public List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
-        String startTime = getString(start);
-        String endTime = getString(end);
+        try {
+            return getStatsAsync(start, end, uris, unique).join();
+        } catch (CompletionException e) {
+            Throwable cause = unwrap(e);
+            throw cause instanceof StatsClientException
+                    ? (StatsClientException) cause
+                    : new StatsClientException("Failed to get stats", cause);
+        }
+    }
+
+    public CompletableFuture<List<ViewStats>> getStatsAsync(LocalDateTime start, LocalDateTime end,
+                                                            List<String> uris, Boolean unique) {
+        FallbackKey fallbackKey = new FallbackKey(getString(start), getString(end),
+                uris == null ? null : List.copyOf(uris), unique);
+        CompletableFuture<List<ViewStats>> stats;
+        StatsCache.Key key = cache == null ? null : cache.key(start, end, uris, unique);
+        if (key == null || !cache.isCacheable(key)) {
+            stats = fetchStats(start, end, uris, unique, fallbackKey);
+        } else {
+            stats = cache.get(key, () -> fetchStats(start, end, uris, unique, fallbackKey));
+        }
+        return stats
+                .handle((result, e) -> {
+                    if (e == null) {
+                        return CompletableFuture.completedFuture(result);
+                    }
+                    Throwable cause = unwrap(e);
+                    if (!isRetryable(cause)) {
+                        return CompletableFuture.<List<ViewStats>>failedFuture(cause);
+                    }
+                    return fallback(fallbackKey, cause);
+                })
+                .thenCompose(result -> result);
+    }
+
+    private CompletableFuture<List<ViewStats>> fetchStats(LocalDateTime start, LocalDateTime end,
+                                                          List<String> uris, Boolean unique, FallbackKey key) {
+        UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(serverUrl + API_GET)
+                .queryParam("start", getString(start))
+                .queryParam("end", getString(end))
+                .queryParam("unique", unique);
+        if (uris != null) {
+            builder.queryParam("uris", uris.toArray());
+        }
+        HttpRequest request = HttpRequest.newBuilder(builder.encode().build().toUri())
+                .timeout(requestTimeout)
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                .GET()
+                .build();
+        if (circuitBreaker != null && !circuitBreaker.tryAcquire()) {
+            return CompletableFuture.failedFuture(new StatsClientException("The stats server circuit is open"));
+        }
+        CompletableFuture<byte[]> response = hedgingEnabled ? sendHedged(request) : sendTimed(request);
+        return response
+                .whenComplete((body, e) -> {
+                    if (circuitBreaker == null) {
+                        return;
+                    }
+                    if (e == null || !isRetryable(unwrap(e))) {
+                        circuitBreaker.onSuccess();
+                    } else if (isRejectedLocally(unwrap(e))) {
+                        circuitBreaker.onIgnored();
+                    } else {
+                        circuitBreaker.onFailure();
+                    }
+                })
+                .thenApply(body -> {
+                    List<ViewStats> stats = Arrays.asList(fromJson(body, ViewStats[].class));
+                    fallback.put(key, stats);
+                    return stats;
+                });
+    }
 
-        ResponseEntity<ViewStats[]> stats = restTemplate.getForEntity(serverUrl + API_GET
-                + START_PARAM + startTime
-                + END_PARAM + endTime
-                + URIS_PARAM + uris
-                + UNIQUE_PARAM + unique,
-                ViewStats[].class);
+    private CompletableFuture<List<ViewStats>> fallback(FallbackKey key, Throwable e) {
+        List<ViewStats> stats = fallback.get(key);
+        if (stats == null) {
+            return CompletableFuture.failedFuture(e);
+        }
+        log.debug("Serving the last known stats for {} from {} to {}: {}", key.uris, key.start, key.end,
+                e.getMessage());
+        fallbackReads.increment();
+        return CompletableFuture.completedFuture(stats);
+    }
+
+    private CompletableFuture<byte[]> sendHedged(HttpRequest request) {
+        CompletableFuture<byte[]> result = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        BiConsumer<byte[], Throwable> complete = (body, e) -> {
+            if (e == null) {
+                result.complete(body);
+            } else if (failures.incrementAndGet() == 2) {
+                result.completeExceptionally(e);
+            }
+        };
+        sendTimed(request).whenComplete(complete);
+        long delay = Math.max(hedgingMinDelay.toNanos(), readLatency.percentile(hedgingPercentile).toNanos());
+        CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS).execute(() -> {
+            if (!result.isDone()) {
+                hedgedReads.increment();
+                sendTimed(request).whenComplete(complete);
+            }
+        });
+        return result;
+    }
+
+    private CompletableFuture<byte[]> sendTimed(HttpRequest request) {
+        long started = System.nanoTime();
+        return send(request).whenComplete((body, e) -> {
+            if (e == null) {
+                readLatency.record(System.nanoTime() - started);
+            }
+        });
+    }
+
+    private CompletableFuture<byte[]> send(HttpRequest request) {
+        if (!inFlight.tryAcquire()) {
+            return CompletableFuture.failedFuture(
+                    new StatsClientException("Too many in-flight requests to the stats server"));
+        }
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .whenComplete((response, e) -> inFlight.release())
+                .thenApply(response -> {
+                    if (response.statusCode() / 100 != 2) {
+                        throw new StatsClientException("The stats server responded with " + response.statusCode(),
+                                response.statusCode());
+                    }
+                    return response.body();
+                });
+    }
+
+    private byte[] toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new StatsClientException("Failed to serialize a request to the stats server", e);
+        }
+    }
 
-        return Arrays.asList(Objects.requireNonNull(stats.getBody()));
+    private <T> T fromJson(byte[] body, Class<T> type) {
+        try {
+            return objectMapper.readValue(body, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static boolean isRetryable(Throwable e) {
+        if (!(e instanceof StatsClientException)) {
+            return true;
+        }
+        int statusCode = ((StatsClientException) e).getStatusCode();
+        return statusCode == 0 || statusCode == 429 || statusCode >= 500;
+    }
+
+    private static boolean isRejectedLocally(Throwable e) {
+        return e instanceof StatsClientException && ((StatsClientException) e).getStatusCode() == 0;
+    }
+
+    static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
     }
 
     private String getString(LocalDateTime time) {
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
         return time.format(formatter);
     }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static class FallbackKey {
+        private final String start;
+        private final String end;
+        private final List<String> uris;
+        private final Boolean unique;
+    }
 }
@@ -0,0 +1,23 @@
+package ru.practicum.ewm;
+
+public class StatsClientException extends RuntimeException {
+    private final int statusCode;
+
+    public StatsClientException(final String message) {
+        this(message, 0);
+    }
+
+    public StatsClientException(final String message, final int statusCode) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public StatsClientException(final String message, final Throwable cause) {
+        super(message, cause);
+        this.statusCode = 0;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
@@ -0,0 +1,74 @@
+package ru.practicum.ewm;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class CircuitBreakerTest {
+    private final CircuitBreaker breaker = new CircuitBreaker("stats-server", 0.5, 4, 4, Duration.ofMillis(50),
+            new SimpleMeterRegistry());
+
+    @Test
+    void openOnFailureRateTest() {
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onSuccess();
+        CircuitBreaker.State beforeMinimumCalls = breaker.getState();
+        breaker.onFailure();
+
+        assertThat(beforeMinimumCalls, is(CircuitBreaker.State.CLOSED));
+        assertThat(breaker.getState(), is(CircuitBreaker.State.OPEN));
+        assertThat(breaker.tryAcquire(), is(false));
+    }
+
+    @Test
+    void closeAfterSuccessfulProbeTest() throws Exception {
+        open();
+        Thread.sleep(60);
+
+        boolean probe = breaker.tryAcquire();
+        boolean secondProbe = breaker.tryAcquire();
+        CircuitBreaker.State probing = breaker.getState();
+        breaker.onSuccess();
+
+        assertThat(probe, is(true));
+        assertThat(secondProbe, is(false));
+        assertThat(probing, is(CircuitBreaker.State.HALF_OPEN));
+        assertThat(breaker.getState(), is(CircuitBreaker.State.CLOSED));
+        assertThat(breaker.tryAcquire(), is(true));
+    }
+
+    @Test
+    void reopenAfterFailedProbeTest() throws Exception {
+        open();
+        Thread.sleep(60);
+
+        breaker.tryAcquire();
+        breaker.onFailure();
+
+        assertThat(breaker.getState(), is(CircuitBreaker.State.OPEN));
+        assertThat(breaker.tryAcquire(), is(false));
+    }
+
+    @Test
+    void releaseIgnoredProbeTest() throws Exception {
+        open();
+        Thread.sleep(60);
+
+        breaker.tryAcquire();
+        breaker.onIgnored();
+
+        assertThat(breaker.getState(), is(CircuitBreaker.State.HALF_OPEN));
+        assertThat(breaker.tryAcquire(), is(true));
+    }
+
+    private void open() {
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure();
+        }
+    }
+}
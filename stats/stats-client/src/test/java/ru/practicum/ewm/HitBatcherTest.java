@@ -0,0 +1,66 @@
+package ru.practicum.ewm;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class HitBatcherTest {
+    private final LocalDateTime second = LocalDateTime.of(2023, 5, 1, 10, 0);
+
+    @Test
+    void retryAggregatedHitAsSentTest() {
+        List<EndpointHit> sent = new CopyOnWriteArrayList<>();
+        List<EndpointHit> retried = new CopyOnWriteArrayList<>();
+        AtomicInteger failures = new AtomicInteger();
+        HitBatcher batcher = new HitBatcher(hits -> {
+            sent.addAll(hits);
+            return CompletableFuture.failedFuture(new StatsClientException("The stats server timed out"));
+        }, (hit, e) -> retried.add(hit), 100, 100, Duration.ofMinutes(1), true);
+
+        batcher.add(makeHit("a", second), e -> failures.incrementAndGet());
+        batcher.add(makeHit("b", second.plusNanos(500_000_000)), e -> failures.incrementAndGet());
+        batcher.add(makeHit("c", second.plusSeconds(1)), e -> failures.incrementAndGet());
+        batcher.stop(Duration.ofSeconds(1));
+
+        assertThat(sent.size(), is(2));
+        assertThat(retried.size(), is(2));
+        assertThat(retried.get(0).getHitId(), is("a"));
+        assertThat(retried.get(0).getWeight(), is(2));
+        assertThat(retried.get(0) == sent.get(0), is(true));
+        assertThat(retried.get(1).getHitId(), is("c"));
+        assertThat(failures.get(), is(0));
+    }
+
+    @Test
+    void notifyEveryHitWhenNotRetriedTest() {
+        AtomicInteger failures = new AtomicInteger();
+        HitBatcher batcher = new HitBatcher(
+                hits -> CompletableFuture.failedFuture(new StatsClientException("The stats server responded with 400",
+                        400)),
+                (hit, e) -> false, 100, 100, Duration.ofMinutes(1), true);
+
+        batcher.add(makeHit("a", second), e -> failures.incrementAndGet());
+        batcher.add(makeHit("b", second), e -> failures.incrementAndGet());
+        batcher.stop(Duration.ofSeconds(1));
+
+        assertThat(failures.get(), is(2));
+    }
+
+    private EndpointHit makeHit(String hitId, LocalDateTime timestamp) {
+        return EndpointHit.builder()
+                .hitId(hitId)
+                .app("ewm-main-service")
+                .uri("/events")
+                .ip("192.168.0.1")
+                .timestamp(timestamp)
+                .build();
+    }
+}
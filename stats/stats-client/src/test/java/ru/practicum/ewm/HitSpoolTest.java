@@ -0,0 +1,141 @@
+package ru.practicum.ewm;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class HitSpoolTest {
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final List<EndpointHit> replayed = new CopyOnWriteArrayList<>();
+    private final Function<List<EndpointHit>, CompletableFuture<EndpointHitBatchResult>> accept = hits -> {
+        replayed.addAll(hits);
+        return CompletableFuture.completedFuture(new EndpointHitBatchResult(hits.size(), 0, List.of()));
+    };
+    private HitSpool spool;
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void stop() throws Exception {
+        if (spool != null) {
+            spool.stop();
+        }
+    }
+
+    @Test
+    void replayAndTruncateTest() throws Exception {
+        spool = makeSpool(accept);
+        spool.start();
+
+        spool.add(makeHit("/events/1"));
+        spool.add(makeHit("/events/2"));
+        awaitUntil(() -> replayed.size() == 2);
+        awaitUntil(() -> size("spool.ndjson") == 0);
+
+        assertThat(replayed.get(0).getUri(), is("/events/1"));
+        assertThat(replayed.get(1).getUri(), is("/events/2"));
+        assertThat(Files.readString(directory.resolve("spool.offset")), is("0"));
+        assertThat(Files.exists(directory.resolve("spool.offset.tmp")), is(false));
+    }
+
+    @Test
+    void replayAfterRestartTest() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        spool = makeSpool(hits -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.failedFuture(new StatsClientException("The stats server is unavailable", 503));
+        });
+        spool.start();
+        spool.add(makeHit("/events/1"));
+        awaitUntil(() -> attempts.get() > 0);
+        spool.stop();
+
+        spool = makeSpool(accept);
+        spool.start();
+        awaitUntil(() -> replayed.size() == 1);
+
+        assertThat(replayed.get(0).getUri(), is("/events/1"));
+    }
+
+    @Test
+    void replayFromStartOnBadOffsetTest() throws Exception {
+        spool = makeSpool(hits -> new CompletableFuture<>());
+        spool.start();
+        spool.add(makeHit("/events/1"));
+        spool.stop();
+        Files.writeString(directory.resolve("spool.offset"), "not an offset");
+
+        spool = makeSpool(accept);
+        spool.start();
+        awaitUntil(() -> replayed.size() == 1);
+
+        assertThat(replayed.get(0).getUri(), is("/events/1"));
+    }
+
+    @Test
+    void skipRejectedBatchTest() throws Exception {
+        AtomicInteger rejected = new AtomicInteger();
+        spool = makeSpool(hits -> {
+            if (hits.get(0).getUri().equals("/events/rejected")) {
+                rejected.incrementAndGet();
+                return CompletableFuture.failedFuture(new StatsClientException("The stats server responded with 400",
+                        400));
+            }
+            return accept.apply(hits);
+        });
+        spool.start();
+
+        spool.add(makeHit("/events/rejected"));
+        awaitUntil(() -> rejected.get() == 1);
+        spool.add(makeHit("/events/1"));
+        awaitUntil(() -> replayed.size() == 1);
+
+        assertThat(rejected.get(), is(1));
+        assertThat(replayed.get(0).getUri(), is("/events/1"));
+    }
+
+    private HitSpool makeSpool(Function<List<EndpointHit>, CompletableFuture<EndpointHitBatchResult>> sender) {
+        return new HitSpool(objectMapper, sender, directory, 1024 * 1024, 1, Duration.ofMillis(10),
+                Duration.ofMillis(50));
+    }
+
+    private long size(String file) {
+        try {
+            return Files.size(directory.resolve(file));
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 200 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(25);
+        }
+        assertThat(condition.getAsBoolean(), is(true));
+    }
+
+    private EndpointHit makeHit(String uri) {
+        return EndpointHit.builder()
+                .hitId(uri)
+                .app("ewm-main-service")
+                .uri(uri)
+                .ip("192.168.0.1")
+                .timestamp(LocalDateTime.of(2023, 5, 1, 10, 0))
+                .build();
+    }
+}
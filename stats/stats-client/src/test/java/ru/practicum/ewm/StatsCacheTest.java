@@ -0,0 +1,121 @@
+package ru.practicum.ewm;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StatsCacheTest {
+    private final LocalDateTime start = LocalDateTime.of(2023, 5, 1, 10, 0);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void loadConcurrentMissesOnceTest() throws Exception {
+        StatsCache cache = new StatsCache(Duration.ofMinutes(1), Duration.ofSeconds(1), 10, meterRegistry);
+        CompletableFuture<List<ViewStats>> loaded = new CompletableFuture<>();
+        CountDownLatch ready = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<CompletableFuture<List<ViewStats>>>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(() -> {
+                ready.await();
+                return cache.get(key(cache, "/events"), () -> {
+                    loads.incrementAndGet();
+                    return loaded;
+                });
+            }));
+        }
+
+        ready.countDown();
+        List<CompletableFuture<List<ViewStats>>> futures = new ArrayList<>();
+        for (Future<CompletableFuture<List<ViewStats>>> result : results) {
+            futures.add(result.get(5, TimeUnit.SECONDS));
+        }
+        loaded.complete(List.of(new ViewStats("ewm-main-service", "/events", 1L)));
+        executor.shutdown();
+
+        assertThat(loads.get(), is(1));
+        for (CompletableFuture<List<ViewStats>> future : futures) {
+            assertThat(future.get(5, TimeUnit.SECONDS).get(0).getHits(), is(1L));
+        }
+    }
+
+    @Test
+    void doNotCacheFailedLoadTest() {
+        StatsCache cache = new StatsCache(Duration.ofMinutes(1), Duration.ofSeconds(1), 10, meterRegistry);
+
+        CompletableFuture<List<ViewStats>> failed = cache.get(key(cache, "/events"), () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.failedFuture(new StatsClientException("The stats server is unavailable", 503));
+        });
+        List<ViewStats> stats = cache.get(key(cache, "/events"), this::load).join();
+
+        assertThrows(Exception.class, failed::join);
+        assertThat(loads.get(), is(2));
+        assertThat(stats.get(0).getUri(), is("/events"));
+    }
+
+    @Test
+    void expireAfterTtlTest() throws Exception {
+        StatsCache cache = new StatsCache(Duration.ofMillis(50), Duration.ofSeconds(1), 10, meterRegistry);
+
+        cache.get(key(cache, "/events"), this::load).join();
+        cache.get(key(cache, "/events"), this::load).join();
+        int beforeExpiry = loads.get();
+        Thread.sleep(60);
+        cache.get(key(cache, "/events"), this::load).join();
+
+        assertThat(beforeExpiry, is(1));
+        assertThat(loads.get(), is(2));
+    }
+
+    @Test
+    void stayWithinMaxSizeTest() {
+        StatsCache cache = new StatsCache(Duration.ofMinutes(1), Duration.ofSeconds(1), 3, meterRegistry);
+
+        for (int i = 0; i < 10; i++) {
+            cache.get(key(cache, "/events/" + i), this::load).join();
+        }
+        cache.get(key(cache, "/events/0"), this::load).join();
+
+        assertThat(meterRegistry.get("stats.client.cache.size").gauge().value(), lessThanOrEqualTo(3.0));
+        assertThat(loads.get(), is(11));
+    }
+
+    @Test
+    void cacheOnlyAlignedWindowsTest() {
+        StatsCache cache = new StatsCache(Duration.ofMinutes(1), Duration.ofMinutes(1), 10, meterRegistry);
+
+        StatsCache.Key aligned = cache.key(start, start.plusHours(1), List.of("/events"), false);
+        StatsCache.Key unaligned = cache.key(start.plusSeconds(30), start.plusHours(1), List.of("/events"), false);
+
+        assertThat(cache.isCacheable(aligned), is(true));
+        assertThat(cache.isCacheable(unaligned), is(false));
+        assertThat(unaligned.getStart(), is(start.plusSeconds(30)));
+    }
+
+    private CompletableFuture<List<ViewStats>> load() {
+        loads.incrementAndGet();
+        return CompletableFuture.completedFuture(List.of(new ViewStats("ewm-main-service", "/events", 1L)));
+    }
+
+    private StatsCache.Key key(StatsCache cache, String uri) {
+        return cache.key(start, start.plusHours(1), List.of(uri), false);
+    }
+}
@@ -0,0 +1,219 @@
+package ru.practicum.ewm;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StatsClientTest {
+    private final LocalDateTime start = LocalDateTime.of(2023, 5, 1, 10, 0);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile Handler handler;
+    private HttpServer server;
+    private StatsClient client;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/stats", exchange -> handler.handle(exchange, requests.incrementAndGet()));
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void firstHedgedResponseWinsTest() throws Exception {
+        client = makeClient();
+        ReflectionTestUtils.setField(client, "hedgingEnabled", true);
+        client.start();
+        handler = (exchange, request) -> {
+            if (request == 1) {
+                sleep(1000);
+                respond(exchange, 200, "[{\"app\":\"ewm-main-service\",\"uri\":\"/slow\",\"hits\":1}]");
+            } else {
+                respond(exchange, 200, "[{\"app\":\"ewm-main-service\",\"uri\":\"/fast\",\"hits\":2}]");
+            }
+        };
+
+        long started = System.nanoTime();
+        List<ViewStats> stats = client.getStats(start, start.plusHours(1), List.of("/events"), false);
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+
+        assertThat(stats.get(0).getUri(), is("/fast"));
+        assertThat(elapsed.compareTo(Duration.ofMillis(1000)) < 0, is(true));
+        assertThat(meterRegistry.counter("stats.client.reads.hedged").count(), is(1.0));
+    }
+
+    @Test
+    void serveFallbackOnlyForRetryableFailuresTest() throws Exception {
+        client = makeClient();
+        client.start();
+        handler = (exchange, request) -> {
+            if (request == 1) {
+                respond(exchange, 200, "[{\"app\":\"ewm-main-service\",\"uri\":\"/events\",\"hits\":3}]");
+            } else if (request == 2) {
+                respond(exchange, 503, "");
+            } else {
+                respond(exchange, 400, "");
+            }
+        };
+
+        client.getStats(start, start.plusHours(1), List.of("/events"), false);
+        List<ViewStats> fallback = client.getStats(start, start.plusHours(1), List.of("/events"), false);
+        final StatsClientException exception = assertThrows(StatsClientException.class,
+                () -> client.getStats(start, start.plusHours(1), List.of("/events"), false));
+
+        assertThat(fallback.get(0).getHits(), is(3L));
+        assertThat(exception.getStatusCode(), is(400));
+    }
+
+    @Test
+    void serveFallbackOnlyForSameWindowTest() throws Exception {
+        client = makeClient();
+        client.start();
+        handler = (exchange, request) -> {
+            if (request == 1) {
+                respond(exchange, 200, "[{\"app\":\"ewm-main-service\",\"uri\":\"/events\",\"hits\":3}]");
+            } else {
+                respond(exchange, 503, "");
+            }
+        };
+
+        client.getStats(start, start.plusHours(1), List.of("/events"), false);
+        List<ViewStats> sameWindow = client.getStats(start, start.plusHours(1), List.of("/events"), false);
+        final StatsClientException exception = assertThrows(StatsClientException.class,
+                () -> client.getStats(start, start.plusHours(2), List.of("/events"), false));
+
+        assertThat(sameWindow.get(0).getHits(), is(3L));
+        assertThat(exception.getStatusCode(), is(503));
+    }
+
+    @Test
+    void doNotCacheFallbackTest() throws Exception {
+        client = makeClient();
+        ReflectionTestUtils.setField(client, "cacheEnabled", true);
+        ReflectionTestUtils.setField(client, "cacheTtl", Duration.ofMillis(50));
+        ReflectionTestUtils.setField(client, "cacheBucket", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(client, "cacheMaxSize", 10);
+        client.start();
+        handler = (exchange, request) -> {
+            if (request == 2) {
+                respond(exchange, 503, "");
+            } else {
+                respond(exchange, 200, "[{\"app\":\"ewm-main-service\",\"uri\":\"/events\",\"hits\":"
+                        + request + "}]");
+            }
+        };
+
+        client.getStats(start, start.plusHours(1), List.of("/events"), false);
+        Thread.sleep(60);
+        List<ViewStats> fallback = client.getStats(start, start.plusHours(1), List.of("/events"), false);
+        List<ViewStats> fresh = client.getStats(start, start.plusHours(1), List.of("/events"), false);
+
+        assertThat(fallback.get(0).getHits(), is(1L));
+        assertThat(fresh.get(0).getHits(), is(3L));
+    }
+
+    @Test
+    void sendCallerWindowTest() throws Exception {
+        client = makeClient();
+        ReflectionTestUtils.setField(client, "cacheEnabled", true);
+        ReflectionTestUtils.setField(client, "cacheTtl", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(client, "cacheBucket", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(client, "cacheMaxSize", 10);
+        client.start();
+        List<String> queries = new CopyOnWriteArrayList<>();
+        handler = (exchange, request) -> {
+            queries.add(exchange.getRequestURI().getQuery());
+            respond(exchange, 200, "[]");
+        };
+
+        client.getStats(start.plusSeconds(30), start.plusHours(1), List.of("/events"), false);
+        client.getStats(start.plusSeconds(30), start.plusHours(1), List.of("/events"), false);
+
+        assertThat(queries.size(), is(2));
+        assertThat(queries.get(0).contains("start=2023-05-01 10:00:30"), is(true));
+        assertThat(queries.get(0).contains("end=2023-05-01 11:00:00"), is(true));
+    }
+
+    @Test
+    void ignoreLocalRejectionsInCircuitTest() throws Exception {
+        client = makeClient();
+        ReflectionTestUtils.setField(client, "maxInFlight", 0);
+        client.start();
+        handler = (exchange, request) -> respond(exchange, 200, "[]");
+
+        for (int i = 0; i < 10; i++) {
+            assertThrows(StatsClientException.class,
+                    () -> client.getStats(start, start.plusHours(1), List.of("/events"), false));
+        }
+        CircuitBreaker breaker = (CircuitBreaker) ReflectionTestUtils.getField(client, "circuitBreaker");
+
+        assertThat(breaker.getState(), is(CircuitBreaker.State.CLOSED));
+        assertThat(requests.get(), is(0));
+    }
+
+    private StatsClient makeClient() {
+        StatsClient statsClient = new StatsClient(new ObjectMapper().findAndRegisterModules(), meterRegistry);
+        ReflectionTestUtils.setField(statsClient, "serverUrl", "http://localhost:" + server.getAddress().getPort());
+        ReflectionTestUtils.setField(statsClient, "maxInFlight", 64);
+        ReflectionTestUtils.setField(statsClient, "connectTimeout", Duration.ofSeconds(2));
+        ReflectionTestUtils.setField(statsClient, "requestTimeout", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(statsClient, "circuitBreakerEnabled", true);
+        ReflectionTestUtils.setField(statsClient, "circuitBreakerFailureRateThreshold", 0.5);
+        ReflectionTestUtils.setField(statsClient, "circuitBreakerMinimumCalls", 4);
+        ReflectionTestUtils.setField(statsClient, "circuitBreakerWindowSize", 4);
+        ReflectionTestUtils.setField(statsClient, "circuitBreakerOpenDuration", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(statsClient, "hedgingPercentile", 0.95);
+        ReflectionTestUtils.setField(statsClient, "hedgingMinDelay", Duration.ofMillis(50));
+        ReflectionTestUtils.setField(statsClient, "hedgingWindowSize", 16);
+        ReflectionTestUtils.setField(statsClient, "fallbackCapacity", 10);
+        return statsClient;
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            exchange.getResponseBody().write(bytes);
+        }
+        exchange.close();
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        void handle(HttpExchange exchange, int request) throws IOException;
+    }
+}
@@ -3,8 +3,11 @@ package ru.practicum.ewm;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import lombok.*;
 
+import javax.validation.constraints.Max;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.Size;
 import java.time.LocalDateTime;
 
 @Getter
@@ -13,14 +16,21 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @NoArgsConstructor
 public class EndpointHit {
+    public static final int MAX_WEIGHT = 1000;
     private Long id;
+    @Size(max = 64, message = "The hitId field is longer than 64 characters")
+    private String hitId;
     @NotEmpty(message = "The app field is empty")
     private String app;
     @NotEmpty(message = "The uri field is empty")
     private String uri;
     @NotEmpty(message = "The ip field is empty")
+    @IpAddress
     private String ip;
     @NotNull
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
     private LocalDateTime timestamp;
+    @Positive(message = "The weight must be positive")
+    @Max(value = MAX_WEIGHT, message = "The weight must not exceed 1000")
+    private Integer weight;
 }
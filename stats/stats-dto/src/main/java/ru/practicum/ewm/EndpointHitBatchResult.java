@@ -0,0 +1,16 @@
+package ru.practicum.ewm;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class EndpointHitBatchResult {
+    private Integer saved;
+    private Integer rejected;
+    private List<EndpointHitError> errors;
+}
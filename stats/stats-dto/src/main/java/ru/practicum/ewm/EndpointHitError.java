@@ -0,0 +1,15 @@
+package ru.practicum.ewm;
+
+import lombok.*;
+
+import java.util.Map;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class EndpointHitError {
+    private Integer index;
+    private Map<String, String> errors;
+}
@@ -0,0 +1,56 @@
+package ru.practicum.ewm;
+
+import javax.validation.ConstraintValidator;
+import javax.validation.ConstraintValidatorContext;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+public class IpAddressValidator implements ConstraintValidator<IpAddress, String> {
+
+    @Override
+    public boolean isValid(String ip, ConstraintValidatorContext context) {
+        if (ip == null || ip.isEmpty()) {
+            return true;
+        }
+        try {
+            parse(ip);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    public static byte[] parse(String ip) {
+        if (ip.indexOf(':') < 0) {
+            return parseIpv4(ip);
+        }
+        if (!ip.chars().allMatch(c -> c == ':' || c == '.' || Character.digit(c, 16) >= 0)) {
+            throw new IllegalArgumentException("The ip is not an IP address: " + ip);
+        }
+        try {
+            return InetAddress.getByName("[" + ip + "]").getAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("The ip is not an IP address: " + ip, e);
+        }
+    }
+
+    private static byte[] parseIpv4(String ip) {
+        String[] octets = ip.split("\\.", -1);
+        if (octets.length != 4) {
+            throw new IllegalArgumentException("The ip is not an IP address: " + ip);
+        }
+        byte[] address = new byte[4];
+        for (int i = 0; i < octets.length; i++) {
+            String octet = octets[i];
+            if (octet.isEmpty() || octet.length() > 3 || !octet.chars().allMatch(c -> c >= '0' && c <= '9')) {
+                throw new IllegalArgumentException("The ip is not an IP address: " + ip);
+            }
+            int value = Integer.parseInt(octet);
+            if (value > 255) {
+                throw new IllegalArgumentException("The ip is not an IP address: " + ip);
+            }
+            address[i] = (byte) value;
+        }
+        return address;
+    }
+}
@@ -0,0 +1,19 @@
+package ru.practicum.ewm;
+
+import lombok.*;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class StatsSeriesRequest {
+    @Valid
+    @NotEmpty(message = "The windows field is empty")
+    private List<StatsWindow> windows;
+    private List<String> uris;
+}
@@ -0,0 +1,17 @@
+package ru.practicum.ewm;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ViewStatsSeries {
+    private String app;
+    private String uri;
+    private Long hits;
+    private List<ViewStatsPoint> points;
+}
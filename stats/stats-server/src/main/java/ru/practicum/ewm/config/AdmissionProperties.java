@@ -0,0 +1,24 @@
+package ru.practicum.ewm.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.admission")
+public class AdmissionProperties {
+    private boolean enabled = true;
+    private int initialLimit = 20;
+    private int minLimit = 1;
+    private int maxLimit = 200;
+    private Duration latencyThreshold = Duration.ofMillis(250);
+    // added to latency-threshold for every hit of the batch
+    private Duration hitLatencyThreshold = Duration.ofMillis(1);
+    private double backoffRatio = 0.9;
+    private Duration retryAfter = Duration.ofSeconds(1);
+    private boolean samplingEnabled = false;
+    private double samplingRate = 0.1;
+}
@@ -0,0 +1,16 @@
+package ru.practicum.ewm.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.bitmap")
+public class BitmapProperties {
+    private boolean enabled = false;
+    private String directory = "data/bitmaps";
+    private Duration snapshotInterval = Duration.ofMinutes(1);
+}
@@ -0,0 +1,20 @@
+package ru.practicum.ewm.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import ru.practicum.ewm.constants.Granularity;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.cache")
+public class CacheProperties {
+    // invalidated only by the hits written by this instance, enable it only when a single instance is running
+    private boolean enabled = false;
+    private long maximumSize = 1000;
+    private Duration recentTtl = Duration.ofSeconds(10);
+    // hit counts cache the whole buckets inside start/end and add the edges exactly; unset caches exact windows
+    private Granularity align;
+}
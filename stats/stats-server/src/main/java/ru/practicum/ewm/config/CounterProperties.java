@@ -0,0 +1,18 @@
+package ru.practicum.ewm.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.counter")
+public class CounterProperties {
+    // counts only the hits written by this instance, enable it only when a single instance is running
+    private boolean enabled = false;
+    private Duration window = Duration.ofDays(7);
+    private Duration lookahead = Duration.ofMinutes(5);
+    private int maxPending = 10000;
+}
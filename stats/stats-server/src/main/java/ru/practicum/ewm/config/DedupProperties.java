@@ -0,0 +1,20 @@
+package ru.practicum.ewm.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.dedup")
+public class DedupProperties {
+    private boolean enabled = true;
+    private Duration window = Duration.ofHours(1);
+    private Duration recentWindow = Duration.ofMinutes(5);
+    private int recentCapacity = 100_000;
+    // hits per second, the Bloom filter of each window is sized for expected-rate * window
+    private long expectedRate = 300;
+    private double falsePositiveRate = 0.0001;
+}
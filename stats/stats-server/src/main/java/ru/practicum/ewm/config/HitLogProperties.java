@@ -0,0 +1,24 @@
+package ru.practicum.ewm.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.log")
+public class HitLogProperties {
+    private String directory = "data/hits";
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+    private FsyncPolicy fsyncPolicy = FsyncPolicy.COMMIT;
+    private Duration fsyncInterval = Duration.ofSeconds(1);
+
+    public enum FsyncPolicy {
+        COMMIT,
+        INTERVAL,
+        NONE
+    }
+}
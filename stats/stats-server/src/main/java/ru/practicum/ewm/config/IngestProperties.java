@@ -0,0 +1,38 @@
+package ru.practicum.ewm.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.ingest")
+public class IngestProperties {
+    private Mode mode = Mode.SYNC;
+    private int capacity = 10_000;
+    private int flushSize = 500;
+    private int batchChunkSize = 500;
+    private Duration flushInterval = Duration.ofSeconds(1);
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    private Duration flushRetryBackoff = Duration.ofSeconds(1);
+    private Duration flushRetryMaxBackoff = Duration.ofSeconds(30);
+    private int flushMaxRetries = 5;
+    private Duration shutdownTimeout = Duration.ofSeconds(30);
+    private boolean journalEnabled = true;
+    private String journalDirectory = "data/journal";
+    private DataSize journalSegmentSize = DataSize.ofMegabytes(16);
+
+    public enum Mode {
+        SYNC,
+        BUFFERED
+    }
+
+    public enum OverflowPolicy {
+        BLOCK,
+        DROP_OLDEST,
+        REJECT
+    }
+}
@@ -0,0 +1,17 @@
+package ru.practicum.ewm.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.parallel")
+public class ParallelProperties {
+    private boolean enabled = true;
+    private Duration splitThreshold = Duration.ofDays(30);
+    // each worker holds its own connection, keep below the datasource pool size
+    private int parallelism = 4;
+}
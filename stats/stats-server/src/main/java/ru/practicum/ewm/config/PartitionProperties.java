@@ -0,0 +1,26 @@
+package ru.practicum.ewm.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import ru.practicum.ewm.constants.PartitionInterval;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.partition")
+public class PartitionProperties {
+    private boolean enabled = true;
+    private PartitionInterval interval = PartitionInterval.MONTH;
+    private int premake = 2;
+    private boolean retentionEnabled = false;
+    private Duration retention = Duration.ofDays(365);
+    private RetentionPolicy retentionPolicy = RetentionPolicy.DETACH;
+    private Duration maintenanceInterval = Duration.ofHours(1);
+
+    public enum RetentionPolicy {
+        DROP,
+        DETACH
+    }
+}
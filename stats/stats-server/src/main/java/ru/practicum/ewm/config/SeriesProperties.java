@@ -0,0 +1,12 @@
+package ru.practicum.ewm.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.series")
+public class SeriesProperties {
+    private int maxWindows = 1000;
+}
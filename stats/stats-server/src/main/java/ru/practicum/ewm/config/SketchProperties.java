@@ -0,0 +1,14 @@
+package ru.practicum.ewm.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.sketch")
+public class SketchProperties {
+    private boolean enabled = true;
+    // relative standard error is 1.04 / sqrt(2^precision): 1.6% for 12, 0.8% for 14
+    private int precision = 12;
+}
@@ -0,0 +1,30 @@
+package ru.practicum.ewm.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Map;
+
+public class StorageEngineEnvironmentPostProcessor implements EnvironmentPostProcessor {
+    private static final String EXCLUDE = "spring.autoconfigure.exclude";
+    private static final String DATABASE_AUTO_CONFIGURATIONS = String.join(",",
+            "org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration",
+            "org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration",
+            "org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration",
+            "org.springframework.boot.autoconfigure.data.jpa.JpaRepositoriesAutoConfiguration",
+            "org.springframework.boot.autoconfigure.sql.init.SqlInitializationAutoConfiguration");
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (!"log".equals(environment.getProperty("stats.storage.engine"))) {
+            return;
+        }
+        String exclude = environment.getProperty(EXCLUDE);
+        String value = exclude == null || exclude.isBlank()
+                ? DATABASE_AUTO_CONFIGURATIONS
+                : exclude + "," + DATABASE_AUTO_CONFIGURATIONS;
+        environment.getPropertySources().addFirst(new MapPropertySource("statsStorageEngine", Map.of(EXCLUDE, value)));
+    }
+}
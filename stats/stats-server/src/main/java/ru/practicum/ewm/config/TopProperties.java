@@ -0,0 +1,20 @@
+package ru.practicum.ewm.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.top")
+public class TopProperties {
+    // summarizes only the hits written by this instance, enable it only when a single instance is running
+    private boolean enabled = false;
+    // estimates overcount a uri by at most (hits in the window) / capacity
+    private int capacity = 1000;
+    private Duration window = Duration.ofDays(30);
+    private Duration lookahead = Duration.ofHours(1);
+    private int maxSkippedHours = 10000;
+}
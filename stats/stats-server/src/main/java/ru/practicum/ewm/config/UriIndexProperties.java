@@ -0,0 +1,17 @@
+package ru.practicum.ewm.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.uri-index")
+public class UriIndexProperties {
+    private int maxExpansion = 10000;
+    // picks up uris other instances created; the periodic reload also catches ids committed out of order
+    private Duration refreshInterval = Duration.ofSeconds(1);
+    private Duration reloadInterval = Duration.ofMinutes(10);
+}
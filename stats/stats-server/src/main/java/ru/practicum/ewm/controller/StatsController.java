@@ -1,20 +1,44 @@
 package ru.practicum.ewm.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.ewm.EndpointHitBatchResult;
+import ru.practicum.ewm.EndpointHitError;
+import ru.practicum.ewm.StatsSeriesRequest;
+import ru.practicum.ewm.ViewStatsSeries;
+import ru.practicum.ewm.config.IngestProperties;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.ewm.service.StatsService;
+import ru.practicum.ewm.service.StatsStream;
 import ru.practicum.ewm.ViewStats;
 import ru.practicum.ewm.EndpointHit;
 
 import javax.validation.Valid;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 
 @RestController
 @RequestMapping
 @RequiredArgsConstructor
 public class StatsController {
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
     private final StatsService service;
+    private final ObjectMapper objectMapper;
+    private final IngestProperties ingestProperties;
 
     @PostMapping("/hit")
     @ResponseStatus(HttpStatus.CREATED)
@@ -22,14 +46,140 @@ public class StatsController {
         service.saveDataRequest(endpointHit);
     }
 
+    @PostMapping(value = "/hit/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.CREATED)
+    public EndpointHitBatchResult saveDataRequests(@RequestBody List<EndpointHit> endpointHits) {
+        return service.saveDataRequests(endpointHits);
+    }
+
+    @PostMapping(value = "/hit/batch", consumes = APPLICATION_NDJSON)
+    @ResponseStatus(HttpStatus.CREATED)
+    public EndpointHitBatchResult saveDataRequestsStream(InputStream body) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        List<EndpointHitError> errors = new ArrayList<>();
+        List<EndpointHit> chunk = new ArrayList<>();
+        int saved = 0;
+        int offset = 0;
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            chunk.add(readHit(line));
+            if (chunk.size() >= ingestProperties.getBatchChunkSize()) {
+                saved += saveChunk(chunk, offset, errors);
+                offset += chunk.size();
+                chunk = new ArrayList<>();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            saved += saveChunk(chunk, offset, errors);
+        }
+        return new EndpointHitBatchResult(saved, errors.size(), errors);
+    }
+
     @GetMapping("/stats")
     @ResponseStatus(HttpStatus.OK)
     public List<ViewStats> getStats(
             @RequestParam String start,
             @RequestParam String end,
             @RequestParam(value = "uris", required = false) List<String> uris,
-            @RequestParam(value = "unique", required = false, defaultValue = "false") String unique) {
+            @RequestParam(value = "unique", required = false, defaultValue = "false") String unique,
+            @RequestParam(value = "approximate", required = false, defaultValue = "false") Boolean approximate,
+            @RequestParam(value = "groupByPattern", required = false, defaultValue = "false") Boolean groupByPattern) {
+
+        return service.getStats(start, end, uris, unique, approximate, groupByPattern);
+    }
+
+    @GetMapping(value = "/stats", produces = APPLICATION_NDJSON)
+    @ResponseStatus(HttpStatus.OK)
+    public StreamingResponseBody streamStatsLines(
+            @RequestParam String start,
+            @RequestParam String end,
+            @RequestParam(value = "uris", required = false) List<String> uris,
+            @RequestParam(value = "unique", required = false, defaultValue = "false") String unique,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "offset", required = false, defaultValue = "0") Integer offset) {
+
+        StatsStream stats = service.streamStats(start, end, uris, unique, limit, offset);
+        return body -> writeStats(stats, objectWriter().withRootValueSeparator("\n").writeValues(body));
+    }
+
+    @GetMapping(value = "/stats", params = "stream=true", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public StreamingResponseBody streamStats(
+            @RequestParam String start,
+            @RequestParam String end,
+            @RequestParam(value = "uris", required = false) List<String> uris,
+            @RequestParam(value = "unique", required = false, defaultValue = "false") String unique,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "offset", required = false, defaultValue = "0") Integer offset) {
+
+        StatsStream stats = service.streamStats(start, end, uris, unique, limit, offset);
+        return body -> writeStats(stats, objectWriter().writeValuesAsArray(body));
+    }
+
+    @GetMapping("/stats/series")
+    @ResponseStatus(HttpStatus.OK)
+    public List<ViewStatsSeries> getSeries(
+            @RequestParam String start,
+            @RequestParam String end,
+            @RequestParam(value = "granularity", required = false, defaultValue = "day") String granularity,
+            @RequestParam(value = "uris", required = false) List<String> uris) {
+
+        return service.getSeries(start, end, granularity, uris);
+    }
+
+    @PostMapping("/stats/series")
+    @ResponseStatus(HttpStatus.OK)
+    public List<ViewStatsSeries> getSeries(@Valid @RequestBody StatsSeriesRequest request) {
+        return service.getSeries(request);
+    }
+
+    @GetMapping("/stats/top")
+    @ResponseStatus(HttpStatus.OK)
+    public List<ViewStats> getTopStats(
+            @RequestParam String start,
+            @RequestParam String end,
+            @RequestParam(value = "limit", required = false, defaultValue = "10") Integer limit,
+            @RequestParam(value = "exact", required = false, defaultValue = "false") Boolean exact) {
+
+        return service.getTopStats(start, end, limit, exact);
+    }
+
+    private ObjectWriter objectWriter() {
+        return objectMapper.writerFor(ViewStats.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    private void writeStats(StatsStream stats, SequenceWriter writer) throws IOException {
+        try (writer) {
+            stats.forEach(viewStats -> {
+                try {
+                    writer.write(viewStats);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private int saveChunk(List<EndpointHit> chunk, int offset, List<EndpointHitError> errors) {
+        EndpointHitBatchResult result = service.saveDataRequests(chunk);
+        if (result.getErrors() != null) {
+            result.getErrors().forEach(error ->
+                    errors.add(new EndpointHitError(offset + error.getIndex(), error.getErrors())));
+        }
+        return result.getSaved();
+    }
 
-        return service.getStats(start, end, uris, unique);
+    private EndpointHit readHit(String line) {
+        try {
+            return objectMapper.readValue(line, EndpointHit.class);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
     }
 }
@@ -0,0 +1,7 @@
+package ru.practicum.ewm.exceptions;
+
+public class HitBufferFullException extends RuntimeException {
+    public HitBufferFullException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,16 @@
+package ru.practicum.ewm.exceptions;
+
+import java.time.Duration;
+
+public class IngestOverloadException extends RuntimeException {
+    private final Duration retryAfter;
+
+    public IngestOverloadException(final String message, final Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
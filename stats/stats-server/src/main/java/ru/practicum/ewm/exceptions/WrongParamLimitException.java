@@ -0,0 +1,7 @@
+package ru.practicum.ewm.exceptions;
+
+public class WrongParamLimitException extends RuntimeException {
+    public WrongParamLimitException(final String message) {
+        super(message);
+    }
+}
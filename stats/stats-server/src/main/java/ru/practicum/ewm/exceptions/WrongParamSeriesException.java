@@ -0,0 +1,7 @@
+package ru.practicum.ewm.exceptions;
+
+public class WrongParamSeriesException extends RuntimeException {
+    public WrongParamSeriesException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package ru.practicum.ewm.exceptions;
+
+public class WrongParamUriException extends RuntimeException {
+    public WrongParamUriException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,34 @@
+package ru.practicum.ewm.mapper;
+
+import ru.practicum.ewm.IpAddressValidator;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+@Converter
+public class IpAddressConverter implements AttributeConverter<String, byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(String ip) {
+        return ip == null ? null : pack(ip);
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] address) {
+        return address == null ? null : unpack(address);
+    }
+
+    public static byte[] pack(String ip) {
+        return IpAddressValidator.parse(ip);
+    }
+
+    public static String unpack(byte[] address) {
+        try {
+            return InetAddress.getByAddress(address).getHostAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("The stored ip has a wrong length: " + address.length, e);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package ru.practicum.ewm.mapper;
 
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.mapstruct.MappingConstants;
 import ru.practicum.ewm.EndpointHit;
 import ru.practicum.ewm.model.Stat;
@@ -8,7 +9,11 @@ import ru.practicum.ewm.model.Stat;
 @Mapper(componentModel = MappingConstants.ComponentModel.SPRING)
 public interface StatsMapper {
 
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "appId", ignore = true)
+    @Mapping(target = "uriId", ignore = true)
     Stat toModel(EndpointHit endpointHit);
 
+    @Mapping(target = "hitId", ignore = true)
     EndpointHit toDto(Stat stat);
 }
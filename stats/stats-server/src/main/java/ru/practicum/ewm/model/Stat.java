@@ -4,6 +4,9 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.Formula;
+import ru.practicum.ewm.mapper.IpAddressConverter;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
@@ -11,21 +14,34 @@ import java.time.LocalDateTime;
 @Getter
 @Builder
 @Entity
-@Table(name = "statistics", schema = "public")
+@Table(name = "statistics", schema = "public",
+        indexes = @Index(name = "ix_statistics_uri_time", columnList = "uri_id, time_stamp, app_id"))
 @NoArgsConstructor
 @AllArgsConstructor
 public class Stat {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "statistics_seq")
+    @SequenceGenerator(name = "statistics_seq", sequenceName = "statistics_seq", allocationSize = 50)
     private Integer id;
-    @Column(name = "app")
+    @Formula("(SELECT a.name FROM statistics_app a WHERE a.id = app_id)")
     private String app;
-    @Column(name = "uri")
+    @Setter
+    @Column(name = "app_id")
+    private Integer appId;
+    @Formula("(SELECT u.uri FROM statistics_uri u WHERE u.id = uri_id)")
     private String uri;
+    @Setter
+    @Column(name = "uri_id")
+    private Integer uriId;
+    @Convert(converter = IpAddressConverter.class)
     @Column(name = "ip")
     private String ip;
     @Column(name = "time_stamp")
     private LocalDateTime timestamp;
+    @Setter
+    @Builder.Default
+    @Column(name = "weight")
+    private int weight = 1;
 
     @Override
     public boolean equals(Object o) {
@@ -0,0 +1,16 @@
+package ru.practicum.ewm.model;
+
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+@Getter
+public class StatDayRows {
+    private final LocalDate day;
+    private final Long rows;
+
+    public StatDayRows(Integer year, Integer month, Integer day, Long rows) {
+        this.day = LocalDate.of(year, month, day);
+        this.rows = rows;
+    }
+}
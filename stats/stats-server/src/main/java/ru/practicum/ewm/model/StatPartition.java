@@ -0,0 +1,14 @@
+package ru.practicum.ewm.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@AllArgsConstructor
+public class StatPartition {
+    private String name;
+    private LocalDateTime rangeStart;
+    private LocalDateTime rangeEnd;
+}
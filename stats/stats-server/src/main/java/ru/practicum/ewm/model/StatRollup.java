@@ -0,0 +1,21 @@
+package ru.practicum.ewm.model;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import ru.practicum.ewm.constants.Granularity;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@EqualsAndHashCode(exclude = "hits")
+public class StatRollup {
+    private Granularity granularity;
+    private LocalDateTime bucket;
+    private String app;
+    private String uri;
+    private Long hits;
+}
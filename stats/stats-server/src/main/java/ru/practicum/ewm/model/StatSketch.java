@@ -0,0 +1,17 @@
+package ru.practicum.ewm.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@AllArgsConstructor
+public class StatSketch {
+    private LocalDateTime bucket;
+    private String app;
+    private String uri;
+    private byte[] sketch;
+}
@@ -0,0 +1,9 @@
+package ru.practicum.ewm.model;
+
+public interface StatVisitor {
+    String getApp();
+
+    String getUri();
+
+    String getIp();
+}
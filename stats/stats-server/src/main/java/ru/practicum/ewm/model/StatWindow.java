@@ -0,0 +1,13 @@
+package ru.practicum.ewm.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@AllArgsConstructor
+public class StatWindow {
+    private LocalDateTime from;
+    private LocalDateTime to;
+}
@@ -0,0 +1,13 @@
+package ru.practicum.ewm.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class StatWindowHits {
+    private int window;
+    private String app;
+    private String uri;
+    private Long hits;
+}
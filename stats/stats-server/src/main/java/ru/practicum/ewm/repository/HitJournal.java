@@ -0,0 +1,280 @@
+package ru.practicum.ewm.repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Repository;
+import ru.practicum.ewm.config.ConditionalOnDatabaseEngine;
+import ru.practicum.ewm.config.IngestProperties;
+import ru.practicum.ewm.model.Stat;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+@Slf4j
+@Repository
+@ConditionalOnDatabaseEngine
+@RequiredArgsConstructor
+public class HitJournal {
+    private static final Pattern SEGMENT = Pattern.compile("journal-(\\d{20})\\.log");
+    private static final int MAGIC = 0x484A524E;
+    private static final byte VERSION = 1;
+    private static final int HEADER_SIZE = 5;
+    private final IngestProperties properties;
+    private final Map<Long, Long> pending = new HashMap<>();
+    private final List<Path> recovered = new ArrayList<>();
+    private final Object commitLock = new Object();
+    private Path directory;
+    private FileChannel active;
+    private long activeSequence;
+    private long appended;
+    private long committed;
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        directory = Paths.get(properties.getJournalDirectory());
+        Files.createDirectories(directory);
+        long next = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted()::iterator) {
+                Matcher matcher = SEGMENT.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    recovered.add(file);
+                    next = Long.parseLong(matcher.group(1)) + 1;
+                }
+            }
+        }
+        open(next);
+    }
+
+    @PreDestroy
+    public synchronized void stop() throws IOException {
+        if (active == null) {
+            return;
+        }
+        active.force(false);
+        active.close();
+        if (pending.getOrDefault(activeSequence, 0L) == 0) {
+            Files.deleteIfExists(segmentPath(activeSequence));
+        } else {
+            log.warn("Hit journal closed with {} unflushed hits",
+                    pending.values().stream().mapToLong(Long::longValue).sum());
+        }
+        active = null;
+    }
+
+    public boolean isEnabled() {
+        return properties.getMode() == IngestProperties.Mode.BUFFERED && properties.isJournalEnabled();
+    }
+
+    public List<Stat> recover() throws IOException {
+        List<Stat> stats = new ArrayList<>();
+        for (Path file : recovered) {
+            read(file, stats);
+        }
+        return stats;
+    }
+
+    public void truncateRecovered() throws IOException {
+        for (Path file : recovered) {
+            Files.deleteIfExists(file);
+        }
+        recovered.clear();
+    }
+
+    public long append(List<Stat> stats) {
+        if (!isEnabled()) {
+            return -1;
+        }
+        ByteBuffer records = encode(stats);
+        long position;
+        long sequence;
+        synchronized (this) {
+            try {
+                if (active.position() > HEADER_SIZE && active.position() + records.remaining() > segmentSize()) {
+                    roll();
+                }
+                while (records.hasRemaining()) {
+                    active.write(records);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            sequence = activeSequence;
+            pending.merge(sequence, (long) stats.size(), Long::sum);
+            position = ++appended;
+        }
+        commit(position);
+        return sequence;
+    }
+
+    public synchronized void release(long sequence, int count) {
+        if (sequence < 0 || count == 0) {
+            return;
+        }
+        long left = pending.merge(sequence, (long) -count, Long::sum);
+        if (left == 0 && sequence != activeSequence) {
+            delete(sequence);
+        }
+    }
+
+    private void commit(long position) {
+        synchronized (commitLock) {
+            if (committed >= position) {
+                return;
+            }
+            long target;
+            FileChannel channel;
+            synchronized (this) {
+                target = appended;
+                channel = active;
+            }
+            try {
+                channel.force(false);
+            } catch (ClosedChannelException e) {
+                log.debug("Hit journal segment was sealed before the commit");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            committed = target;
+        }
+    }
+
+    private void roll() throws IOException {
+        active.force(false);
+        active.close();
+        long sequence = activeSequence;
+        open(sequence + 1);
+        if (pending.getOrDefault(sequence, 0L) == 0) {
+            delete(sequence);
+        }
+    }
+
+    private void open(long sequence) throws IOException {
+        activeSequence = sequence;
+        active = FileChannel.open(segmentPath(sequence),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (active.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).put(VERSION).flip();
+            while (header.hasRemaining()) {
+                active.write(header);
+            }
+        }
+    }
+
+    private void delete(long sequence) {
+        pending.remove(sequence);
+        try {
+            Files.deleteIfExists(segmentPath(sequence));
+        } catch (IOException e) {
+            log.warn("Failed to delete hit journal segment {}", sequence, e);
+        }
+    }
+
+    private void read(Path file, List<Stat> stats) throws IOException {
+        int count = 0;
+        long size = Files.size(file);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int version = 0;
+            int length = in.readInt();
+            if (length == MAGIC) {
+                version = in.readByte();
+                if (version != VERSION) {
+                    throw new IOException("Unsupported hit journal version " + version + " in " + file);
+                }
+                length = in.readInt();
+            }
+            while (true) {
+                long checksum = in.readInt() & 0xFFFFFFFFL;
+                if (length <= 0 || length > size) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if (crc.getValue() != checksum) {
+                    break;
+                }
+                stats.add(decode(payload, version));
+                count++;
+                length = in.readInt();
+            }
+        } catch (EOFException e) {
+            log.debug("Hit journal segment {} ends with a partial record", file);
+        }
+        log.info("Recovered {} hits from the hit journal segment {}", count, file);
+    }
+
+    private ByteBuffer encode(List<Stat> stats) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            DataOutputStream record = new DataOutputStream(payload);
+            for (Stat stat : stats) {
+                payload.reset();
+                record.writeUTF(stat.getApp());
+                record.writeUTF(stat.getUri());
+                record.writeUTF(stat.getIp());
+                record.writeLong(stat.getTimestamp().toEpochSecond(ZoneOffset.UTC));
+                record.writeInt(stat.getTimestamp().getNano());
+                record.writeInt(stat.getWeight());
+                CRC32 crc = new CRC32();
+                crc.update(payload.toByteArray());
+                out.writeInt(payload.size());
+                out.writeInt((int) crc.getValue());
+                payload.writeTo(out);
+            }
+            return ByteBuffer.wrap(bytes.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Stat decode(byte[] payload, int version) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        return Stat.builder()
+                .app(in.readUTF())
+                .uri(in.readUTF())
+                .ip(in.readUTF())
+                .timestamp(LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC))
+                .weight(version == 0 ? 1 : in.readInt())
+                .build();
+    }
+
+    private Path segmentPath(long sequence) {
+        return directory.resolve(String.format("journal-%020d.log", sequence));
+    }
+
+    private long segmentSize() {
+        return properties.getJournalSegmentSize().toBytes();
+    }
+}
@@ -0,0 +1,398 @@
+package ru.practicum.ewm.repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.config.HitLogProperties;
+import ru.practicum.ewm.mapper.IpAddressConverter;
+import ru.practicum.ewm.model.Stat;
+import ru.practicum.ewm.model.StatWindow;
+import ru.practicum.ewm.model.StatWindowHits;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "stats.storage.engine", havingValue = "log")
+public class HitLog {
+    private static final Pattern SEGMENT = Pattern.compile("segment-(\\d{20})\\.log");
+    private static final String DICTIONARY = "dictionary.dat";
+    private static final byte APP = 0;
+    private static final byte URI = 1;
+    private final HitLogProperties properties;
+    private final List<HitLogSegment> segments = new CopyOnWriteArrayList<>();
+    private final Map<String, Integer> appIds = new ConcurrentHashMap<>();
+    private final Map<String, Integer> uriIds = new ConcurrentHashMap<>();
+    private final List<String> apps = new CopyOnWriteArrayList<>();
+    private final List<String> uris = new CopyOnWriteArrayList<>();
+    private final Object commitLock = new Object();
+    private Path directory;
+    private FileOutputStream dictionaryFile;
+    private DataOutputStream dictionary;
+    private HitLogSegment active;
+    private long appended;
+    private long committed;
+    private ScheduledExecutorService background;
+
+    @PostConstruct
+    public void start() throws IOException {
+        directory = Paths.get(properties.getDirectory());
+        Files.createDirectories(directory);
+        loadDictionary();
+        dictionaryFile = new FileOutputStream(directory.resolve(DICTIONARY).toFile(), true);
+        dictionary = new DataOutputStream(new BufferedOutputStream(dictionaryFile));
+
+        background = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stats-hit-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted()::iterator) {
+                Matcher matcher = SEGMENT.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    segments.add(HitLogSegment.open(file, Long.parseLong(matcher.group(1)), segmentSize()));
+                }
+            }
+        }
+        if (segments.isEmpty()) {
+            segments.add(createSegment(0));
+        }
+        active = segments.get(segments.size() - 1);
+        segments.stream()
+                .filter(segment -> segment != active && segment.getSummary() == null)
+                .forEach(segment -> background.execute(() -> compact(segment)));
+
+        if (properties.getFsyncPolicy() == HitLogProperties.FsyncPolicy.INTERVAL) {
+            long interval = properties.getFsyncInterval().toMillis();
+            background.scheduleWithFixedDelay(this::commitQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (background != null) {
+            background.shutdownNow();
+        }
+        if (active != null) {
+            commit(Long.MAX_VALUE);
+            dictionary.close();
+        }
+    }
+
+    public void append(List<Stat> stats) {
+        byte[][] ips = new byte[stats.size()][];
+        for (int i = 0; i < ips.length; i++) {
+            ips[i] = IpAddressConverter.pack(stats.get(i).getIp());
+        }
+        long position;
+        synchronized (this) {
+            try {
+                int[] appIdsOfStats = new int[ips.length];
+                int[] uriIdsOfStats = new int[ips.length];
+                for (int i = 0; i < ips.length; i++) {
+                    appIdsOfStats[i] = resolve(stats.get(i).getApp(), APP, appIds, apps);
+                    uriIdsOfStats[i] = resolve(stats.get(i).getUri(), URI, uriIds, uris);
+                }
+                dictionary.flush();
+                for (int i = 0; i < ips.length; i++) {
+                    long second = stats.get(i).getTimestamp().toEpochSecond(ZoneOffset.UTC);
+                    for (int left = stats.get(i).getWeight(); left > 0; left -= HitLogSegment.MAX_WEIGHT) {
+                        int weight = Math.min(left, HitLogSegment.MAX_WEIGHT);
+                        if (!active.append(second, appIdsOfStats[i], uriIdsOfStats[i], ips[i], weight)) {
+                            roll();
+                            active.append(second, appIdsOfStats[i], uriIdsOfStats[i], ips[i], weight);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            position = ++appended;
+        }
+        if (properties.getFsyncPolicy() == HitLogProperties.FsyncPolicy.COMMIT) {
+            commit(position);
+        }
+    }
+
+    public List<String> getUris() {
+        return uris;
+    }
+
+    public List<ViewStats> countHits(LocalDateTime from, LocalDateTime to, IntPredicate uriFilter) {
+        long fromSecond = toSecond(from);
+        long toSecond = toSecond(to);
+        Map<Long, Long> hits = new HashMap<>();
+        for (HitLogSegment segment : segments) {
+            if (!segment.overlaps(fromSecond, toSecond)) {
+                continue;
+            }
+            Map<HitLogSegment.BucketKey, Long> summary = segment.getSummary();
+            if (summary == null) {
+                segment.scan(fromSecond, toSecond, (second, appId, uriId, offset) -> {
+                    if (uriFilter.test(uriId)) {
+                        hits.merge(key(appId, uriId), (long) segment.weight(offset), Long::sum);
+                    }
+                });
+                continue;
+            }
+            Set<Long> partialBuckets = new HashSet<>();
+            summary.forEach((bucket, count) -> {
+                if (!uriFilter.test(bucket.getUriId())
+                        || bucket.getBucket() >= toSecond
+                        || bucket.getBucket() + HitLogSegment.BUCKET_SECONDS <= fromSecond) {
+                    return;
+                }
+                long bucketEnd = bucket.getBucket() + HitLogSegment.BUCKET_SECONDS;
+                if (bucket.getBucket() >= fromSecond && bucketEnd <= toSecond) {
+                    hits.merge(key(bucket.getAppId(), bucket.getUriId()), count, Long::sum);
+                } else {
+                    partialBuckets.add(bucket.getBucket());
+                }
+            });
+            if (!partialBuckets.isEmpty()) {
+                segment.scan(fromSecond, toSecond, (second, appId, uriId, offset) -> {
+                    long bucket = Math.floorDiv(second, HitLogSegment.BUCKET_SECONDS) * HitLogSegment.BUCKET_SECONDS;
+                    if (partialBuckets.contains(bucket) && uriFilter.test(uriId)) {
+                        hits.merge(key(appId, uriId), (long) segment.weight(offset), Long::sum);
+                    }
+                });
+            }
+        }
+
+        List<ViewStats> stats = new ArrayList<>();
+        hits.forEach((key, count) -> {
+            if (isKnown(key)) {
+                stats.add(new ViewStats(apps.get(appId(key)), uris.get(uriId(key)), count));
+            }
+        });
+        return stats;
+    }
+
+    public List<ViewStats> countVisitors(LocalDateTime from, LocalDateTime to, IntPredicate uriFilter) {
+        long fromSecond = toSecond(from);
+        long toSecond = toSecond(to);
+        Map<Long, Set<ByteBuffer>> visitors = new HashMap<>();
+        for (HitLogSegment segment : segments) {
+            if (segment.overlaps(fromSecond, toSecond)) {
+                segment.scan(fromSecond, toSecond, (second, appId, uriId, offset) -> {
+                    if (uriFilter.test(uriId)) {
+                        visitors.computeIfAbsent(key(appId, uriId), key -> new HashSet<>()).add(segment.ip(offset));
+                    }
+                });
+            }
+        }
+
+        List<ViewStats> stats = new ArrayList<>();
+        visitors.forEach((key, ips) -> {
+            if (isKnown(key)) {
+                stats.add(new ViewStats(apps.get(appId(key)), uris.get(uriId(key)), (long) ips.size()));
+            }
+        });
+        return stats;
+    }
+
+    public List<StatWindowHits> countHits(List<StatWindow> windows, IntPredicate uriFilter) {
+        long[] fromSeconds = new long[windows.size()];
+        long[] toSeconds = new long[windows.size()];
+        long fromSecond = Long.MAX_VALUE;
+        long toSecond = Long.MIN_VALUE;
+        for (int i = 0; i < windows.size(); i++) {
+            fromSeconds[i] = toSecond(windows.get(i).getFrom());
+            toSeconds[i] = toSecond(windows.get(i).getTo());
+            fromSecond = Math.min(fromSecond, fromSeconds[i]);
+            toSecond = Math.max(toSecond, toSeconds[i]);
+        }
+
+        Map<WindowKey, Long> hits = new HashMap<>();
+        for (HitLogSegment segment : segments) {
+            if (segment.overlaps(fromSecond, toSecond)) {
+                segment.scan(fromSecond, toSecond, (second, appId, uriId, offset) -> {
+                    if (!uriFilter.test(uriId)) {
+                        return;
+                    }
+                    for (int i = 0; i < fromSeconds.length; i++) {
+                        if (second >= fromSeconds[i] && second < toSeconds[i]) {
+                            hits.merge(new WindowKey(i, key(appId, uriId)), (long) segment.weight(offset), Long::sum);
+                        }
+                    }
+                });
+            }
+        }
+
+        List<StatWindowHits> windowHits = new ArrayList<>();
+        hits.forEach((key, count) -> {
+            if (isKnown(key.getKey())) {
+                windowHits.add(new StatWindowHits(key.getWindow(), apps.get(appId(key.getKey())),
+                        uris.get(uriId(key.getKey())), count));
+            }
+        });
+        return windowHits;
+    }
+
+    private int resolve(String value, byte kind, Map<String, Integer> ids, List<String> values) throws IOException {
+        Integer id = ids.get(value);
+        if (id != null) {
+            return id;
+        }
+        id = values.size();
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        dictionary.writeByte(kind);
+        dictionary.writeInt(id);
+        dictionary.writeInt(bytes.length);
+        dictionary.write(bytes);
+        values.add(value);
+        ids.put(value, id);
+        return id;
+    }
+
+    private void loadDictionary() throws IOException {
+        Path path = directory.resolve(DICTIONARY);
+        if (!Files.exists(path)) {
+            return;
+        }
+        long valid = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            while (true) {
+                byte kind = in.readByte();
+                int id = in.readInt();
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                List<String> values = kind == APP ? apps : uris;
+                if (id != values.size()) {
+                    break;
+                }
+                String value = new String(bytes, StandardCharsets.UTF_8);
+                values.add(value);
+                (kind == APP ? appIds : uriIds).put(value, id);
+                valid += 9 + bytes.length;
+            }
+        } catch (EOFException e) {
+            log.debug("Hit log dictionary ends at {} bytes", valid);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(valid);
+        }
+    }
+
+    private void roll() throws IOException {
+        HitLogSegment sealed = active;
+        sealed.force();
+        active = createSegment(sealed.getSequence() + 1);
+        segments.add(active);
+        background.execute(() -> compact(sealed));
+    }
+
+    private HitLogSegment createSegment(long sequence) throws IOException {
+        return HitLogSegment.open(directory.resolve(String.format("segment-%020d.log", sequence)), sequence,
+                segmentSize());
+    }
+
+    private void compact(HitLogSegment segment) {
+        try {
+            segment.compact();
+        } catch (RuntimeException e) {
+            log.warn("Failed to compact hit log segment {}", segment.getSequence(), e);
+        }
+    }
+
+    private void commit(long position) {
+        synchronized (commitLock) {
+            if (committed >= position) {
+                return;
+            }
+            long target;
+            HitLogSegment segment;
+            synchronized (this) {
+                target = appended;
+                segment = active;
+            }
+            try {
+                dictionaryFile.getChannel().force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            segment.force();
+            committed = target;
+        }
+    }
+
+    private void commitQuietly() {
+        try {
+            commit(Long.MAX_VALUE);
+        } catch (RuntimeException e) {
+            log.warn("Failed to sync the hit log", e);
+        }
+    }
+
+    private long segmentSize() {
+        long records = properties.getSegmentSize().toBytes() / HitLogSegment.RECORD_SIZE;
+        return Math.max(records, 1) * HitLogSegment.RECORD_SIZE;
+    }
+
+    private boolean isKnown(long key) {
+        return appId(key) < apps.size() && uriId(key) < uris.size();
+    }
+
+    private static long toSecond(LocalDateTime time) {
+        LocalDateTime second = time.truncatedTo(ChronoUnit.SECONDS);
+        long epochSecond = second.toEpochSecond(ZoneOffset.UTC);
+        return second.equals(time) ? epochSecond : epochSecond + 1;
+    }
+
+    private static long key(int appId, int uriId) {
+        return ((long) appId << 32) | (uriId & 0xFFFFFFFFL);
+    }
+
+    private static int appId(long key) {
+        return (int) (key >>> 32);
+    }
+
+    private static int uriId(long key) {
+        return (int) key;
+    }
+
+    @Value
+    private static class WindowKey {
+        int window;
+        long key;
+    }
+}
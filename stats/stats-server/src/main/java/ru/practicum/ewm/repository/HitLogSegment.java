@@ -0,0 +1,196 @@
+package ru.practicum.ewm.repository;
+
+import lombok.Getter;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+@Slf4j
+class HitLogSegment {
+    static final int RECORD_SIZE = 34;
+    static final int BUCKET_SECONDS = 3600;
+    static final int MAX_WEIGHT = 255;
+    private static final int SECOND = 1;
+    private static final int APP = 9;
+    private static final int URI = 13;
+    private static final int IP_LENGTH = 17;
+    private static final int IP = 18;
+    @Getter
+    private final long sequence;
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private volatile int count;
+    @Getter
+    private volatile long minSecond = Long.MAX_VALUE;
+    @Getter
+    private volatile long maxSecond = Long.MIN_VALUE;
+    @Getter
+    private volatile Map<BucketKey, Long> summary;
+
+    private HitLogSegment(long sequence, Path path, MappedByteBuffer buffer) {
+        this.sequence = sequence;
+        this.path = path;
+        this.buffer = buffer;
+        this.capacity = buffer.capacity() / RECORD_SIZE;
+    }
+
+    static HitLogSegment open(Path path, long sequence, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            long length = channel.size() > 0 ? channel.size() : size;
+            HitLogSegment segment = new HitLogSegment(sequence, path,
+                    channel.map(FileChannel.MapMode.READ_WRITE, 0, length));
+            segment.recover();
+            return segment;
+        }
+    }
+
+    boolean append(long second, int appId, int uriId, byte[] ip, int weight) {
+        if (count == capacity) {
+            return false;
+        }
+        int offset = count * RECORD_SIZE;
+        buffer.putLong(offset + SECOND, second);
+        buffer.putInt(offset + APP, appId);
+        buffer.putInt(offset + URI, uriId);
+        buffer.put(offset + IP_LENGTH, (byte) ip.length);
+        for (int i = 0; i < ip.length; i++) {
+            buffer.put(offset + IP + i, ip[i]);
+        }
+        buffer.put(offset, (byte) weight);
+        minSecond = Math.min(minSecond, second);
+        maxSecond = Math.max(maxSecond, second);
+        count++;
+        return true;
+    }
+
+    boolean isFull() {
+        return count == capacity;
+    }
+
+    boolean overlaps(long fromSecond, long toSecond) {
+        return minSecond < toSecond && maxSecond >= fromSecond;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    void scan(long fromSecond, long toSecond, RecordVisitor visitor) {
+        int limit = count;
+        for (int i = 0; i < limit; i++) {
+            int offset = i * RECORD_SIZE;
+            long second = buffer.getLong(offset + SECOND);
+            if (second >= fromSecond && second < toSecond) {
+                visitor.visit(second, buffer.getInt(offset + APP), buffer.getInt(offset + URI), offset);
+            }
+        }
+    }
+
+    int weight(int offset) {
+        return buffer.get(offset) & 0xFF;
+    }
+
+    ByteBuffer ip(int offset) {
+        byte[] ip = new byte[buffer.get(offset + IP_LENGTH)];
+        for (int i = 0; i < ip.length; i++) {
+            ip[i] = buffer.get(offset + IP + i);
+        }
+        return ByteBuffer.wrap(ip);
+    }
+
+    void compact() {
+        Map<BucketKey, Long> hits = new HashMap<>();
+        scan(Long.MIN_VALUE, Long.MAX_VALUE, (second, appId, uriId, offset) ->
+                hits.merge(new BucketKey(Math.floorDiv(second, BUCKET_SECONDS) * BUCKET_SECONDS, appId, uriId),
+                        (long) weight(offset), Long::sum));
+
+        Path summaryPath = summaryPath();
+        Path temp = summaryPath.resolveSibling(summaryPath.getFileName() + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.writeInt(hits.size());
+            for (Map.Entry<BucketKey, Long> entry : hits.entrySet()) {
+                out.writeLong(entry.getKey().getBucket());
+                out.writeInt(entry.getKey().getAppId());
+                out.writeInt(entry.getKey().getUriId());
+                out.writeLong(entry.getValue());
+            }
+            out.flush();
+            file.getFD().sync();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            Files.move(temp, summaryPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        summary = hits;
+    }
+
+    private void recover() throws IOException {
+        while (count < capacity && buffer.get(count * RECORD_SIZE) != 0) {
+            long second = buffer.getLong(count * RECORD_SIZE + SECOND);
+            minSecond = Math.min(minSecond, second);
+            maxSecond = Math.max(maxSecond, second);
+            count++;
+        }
+
+        Path summaryPath = summaryPath();
+        if (!Files.exists(summaryPath)) {
+            return;
+        }
+        Map<BucketKey, Long> hits = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(summaryPath)))) {
+            int size = in.readInt();
+            if (size < 0 || size > count) {
+                throw new IOException("Unexpected summary size " + size);
+            }
+            for (int i = 0; i < size; i++) {
+                hits.put(new BucketKey(in.readLong(), in.readInt(), in.readInt()), in.readLong());
+            }
+            if (in.read() != -1) {
+                throw new IOException("Unexpected data after the summary");
+            }
+        } catch (IOException e) {
+            log.warn("Ignoring the unreadable summary of hit log segment {}", sequence, e);
+            Files.delete(summaryPath);
+            return;
+        }
+        summary = hits;
+    }
+
+    private Path summaryPath() {
+        return path.resolveSibling(path.getFileName().toString().replace(".log", ".summary"));
+    }
+
+    @FunctionalInterface
+    interface RecordVisitor {
+        void visit(long second, int appId, int uriId, int offset);
+    }
+
+    @Value
+    static class BucketKey {
+        long bucket;
+        int appId;
+        int uriId;
+    }
+}
@@ -0,0 +1,84 @@
+package ru.practicum.ewm.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.ewm.config.ConditionalOnDatabaseEngine;
+
+import java.sql.DatabaseMetaData;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+@Repository
+@ConditionalOnDatabaseEngine
+public class StatsDictionaryRepository {
+    private static final String INSERT_POSTGRES = "INSERT INTO %1$s (%2$s) VALUES (?) ON CONFLICT (%2$s) DO NOTHING";
+    private static final String INSERT_STANDARD = "INSERT INTO %1$s (%2$s) " +
+            "SELECT v.%2$s FROM (VALUES (CAST(? AS VARCHAR(%3$d)))) AS v (%2$s) " +
+            "WHERE NOT EXISTS (SELECT 1 FROM %1$s d WHERE d.%2$s = v.%2$s)";
+    private static final String SELECT_IDS = "SELECT id, %2$s FROM %1$s WHERE %2$s IN (:values)";
+    private static final String SELECT_URIS = "SELECT id, uri FROM statistics_uri";
+    private static final String SELECT_URIS_AFTER = "SELECT id, uri FROM statistics_uri WHERE id > ?";
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final String insert;
+
+    public StatsDictionaryRepository(JdbcTemplate jdbcTemplate,
+                                     NamedParameterJdbcTemplate namedJdbcTemplate) throws MetaDataAccessException {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        String database = JdbcUtils.extractDatabaseMetaData(
+                Objects.requireNonNull(jdbcTemplate.getDataSource()), DatabaseMetaData::getDatabaseProductName);
+        this.insert = "PostgreSQL".equals(database) ? INSERT_POSTGRES : INSERT_STANDARD;
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public Map<String, Integer> findOrCreateApps(Collection<String> apps) {
+        return findOrCreate("statistics_app", "name", 50, apps);
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public Map<String, Integer> findOrCreateUris(Collection<String> uris) {
+        return findOrCreate("statistics_uri", "uri", 70, uris);
+    }
+
+    public Map<Integer, String> findAllUris() {
+        return findUris(SELECT_URIS);
+    }
+
+    public Map<Integer, String> findUrisAfter(int id) {
+        return findUris(SELECT_URIS_AFTER, id);
+    }
+
+    private Map<Integer, String> findUris(String sql, Object... args) {
+        Map<Integer, String> uris = new HashMap<>();
+        jdbcTemplate.query(sql, resultSet -> {
+            uris.put(resultSet.getInt("id"), resultSet.getString("uri"));
+        }, args);
+        return uris;
+    }
+
+    private Map<String, Integer> findOrCreate(String table, String column, int length, Collection<String> values) {
+        List<String> sorted = new ArrayList<>(values);
+        sorted.sort(null);
+        jdbcTemplate.batchUpdate(String.format(insert, table, column, length), sorted, sorted.size(),
+                (statement, value) -> statement.setString(1, value));
+
+        Map<String, Integer> ids = new HashMap<>();
+        namedJdbcTemplate.query(String.format(SELECT_IDS, table, column),
+                new MapSqlParameterSource("values", sorted),
+                resultSet -> {
+                    ids.put(resultSet.getString(column), resultSet.getInt("id"));
+                });
+        return ids;
+    }
+}
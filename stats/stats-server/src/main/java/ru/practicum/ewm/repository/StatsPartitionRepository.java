@@ -0,0 +1,105 @@
+package ru.practicum.ewm.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.ewm.config.ConditionalOnDatabaseEngine;
+import ru.practicum.ewm.config.PartitionProperties;
+import ru.practicum.ewm.constants.PartitionInterval;
+import ru.practicum.ewm.model.StatPartition;
+
+import java.sql.DatabaseMetaData;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+
+@Repository
+@ConditionalOnDatabaseEngine
+public class StatsPartitionRepository {
+    private static final String FIND_PARTITIONS = "SELECT name, range_start, range_end " +
+            "FROM statistics_partition ORDER BY range_start";
+    private static final String INSERT_PARTITION_POSTGRES = "INSERT INTO statistics_partition " +
+            "(name, range_start, range_end) VALUES (?, ?, ?) ON CONFLICT (name) DO NOTHING";
+    private static final String INSERT_PARTITION_STANDARD = "MERGE INTO statistics_partition p " +
+            "USING (VALUES (CAST(? AS VARCHAR(63)), CAST(? AS TIMESTAMP), CAST(? AS TIMESTAMP))) " +
+            "AS v (name, range_start, range_end) ON p.name = v.name " +
+            "WHEN NOT MATCHED THEN INSERT (name, range_start, range_end) " +
+            "VALUES (v.name, v.range_start, v.range_end)";
+    private static final String DELETE_PARTITION = "DELETE FROM statistics_partition WHERE name = ?";
+    private static final String LOCK_POSTGRES = "SELECT pg_advisory_xact_lock(hashtext('statistics_partition'))";
+    private static final String EXISTS_POSTGRES = "SELECT to_regclass(?) IS NOT NULL";
+    private static final String CREATE_TABLE_POSTGRES = "CREATE TABLE %s (LIKE statistics INCLUDING DEFAULTS)";
+    private static final String MOVE_DEFAULT_POSTGRES = "WITH moved AS (" +
+            "DELETE FROM statistics_default WHERE time_stamp >= ? AND time_stamp < ? RETURNING *) " +
+            "INSERT INTO %s SELECT * FROM moved";
+    private static final String ATTACH_POSTGRES = "ALTER TABLE statistics ATTACH PARTITION %s " +
+            "FOR VALUES FROM ('%s') TO ('%s')";
+    private static final String FIND_DEFAULT_STARTS_POSTGRES = "SELECT DISTINCT date_trunc(?, time_stamp) " +
+            "AS range_start FROM statistics_default";
+    private static final String DROP_POSTGRES = "DROP TABLE IF EXISTS %s";
+    private static final String DETACH_POSTGRES = "ALTER TABLE statistics DETACH PARTITION %s";
+    private static final String DELETE_ROWS = "DELETE FROM statistics WHERE time_stamp >= ? AND time_stamp < ?";
+    private static final String DELETE_DEFAULT_POSTGRES = "DELETE FROM statistics_default WHERE time_stamp < ?";
+    private static final String DELETE_BEFORE = "DELETE FROM statistics WHERE time_stamp < ?";
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean postgres;
+
+    public StatsPartitionRepository(JdbcTemplate jdbcTemplate) throws MetaDataAccessException {
+        this.jdbcTemplate = jdbcTemplate;
+        String database = JdbcUtils.extractDatabaseMetaData(
+                Objects.requireNonNull(jdbcTemplate.getDataSource()), DatabaseMetaData::getDatabaseProductName);
+        this.postgres = "PostgreSQL".equals(database);
+    }
+
+    public List<StatPartition> findPartitions() {
+        return jdbcTemplate.query(FIND_PARTITIONS, (resultSet, rowNum) -> new StatPartition(
+                resultSet.getString("name"),
+                resultSet.getTimestamp("range_start").toLocalDateTime(),
+                resultSet.getTimestamp("range_end").toLocalDateTime()));
+    }
+
+    public List<LocalDateTime> findDefaultStarts(PartitionInterval interval) {
+        if (!postgres) {
+            return List.of();
+        }
+        return jdbcTemplate.query(FIND_DEFAULT_STARTS_POSTGRES, (resultSet, rowNum) ->
+                resultSet.getTimestamp("range_start").toLocalDateTime(), interval.name().toLowerCase());
+    }
+
+    @Transactional
+    public void create(StatPartition partition) {
+        Timestamp start = Timestamp.valueOf(partition.getRangeStart());
+        Timestamp end = Timestamp.valueOf(partition.getRangeEnd());
+        if (!postgres) {
+            jdbcTemplate.update(INSERT_PARTITION_STANDARD, partition.getName(), start, end);
+            return;
+        }
+        jdbcTemplate.queryForObject(LOCK_POSTGRES, Object.class);
+        if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(EXISTS_POSTGRES, Boolean.class, partition.getName()))) {
+            jdbcTemplate.execute(String.format(CREATE_TABLE_POSTGRES, partition.getName()));
+            jdbcTemplate.update(String.format(MOVE_DEFAULT_POSTGRES, partition.getName()), start, end);
+            jdbcTemplate.execute(String.format(ATTACH_POSTGRES, partition.getName(), start, end));
+        }
+        jdbcTemplate.update(INSERT_PARTITION_POSTGRES, partition.getName(), start, end);
+    }
+
+    @Transactional
+    public void remove(StatPartition partition, PartitionProperties.RetentionPolicy policy) {
+        if (!postgres) {
+            jdbcTemplate.update(DELETE_ROWS,
+                    Timestamp.valueOf(partition.getRangeStart()), Timestamp.valueOf(partition.getRangeEnd()));
+        } else if (policy == PartitionProperties.RetentionPolicy.DETACH) {
+            jdbcTemplate.execute(String.format(DETACH_POSTGRES, partition.getName()));
+        } else {
+            jdbcTemplate.execute(String.format(DROP_POSTGRES, partition.getName()));
+        }
+        jdbcTemplate.update(DELETE_PARTITION, partition.getName());
+    }
+
+    public int removeDefault(LocalDateTime before) {
+        return jdbcTemplate.update(postgres ? DELETE_DEFAULT_POSTGRES : DELETE_BEFORE, Timestamp.valueOf(before));
+    }
+}
@@ -4,6 +4,8 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import ru.practicum.ewm.ViewStats;
 import ru.practicum.ewm.model.Stat;
+import ru.practicum.ewm.model.StatDayRows;
+import ru.practicum.ewm.model.StatVisitor;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -11,38 +13,86 @@ import java.util.List;
 public interface StatsRepository extends JpaRepository<Stat, Integer> {
 
     @Query("select new ru.practicum.ewm.ViewStats" +
-            "(s.app, s.uri, count (s.ip))" +
+            "(a.name, u.uri, sum (s.weight))" +
             "from Stat s " +
+            "join StatApp a on a.id = s.appId " +
+            "join StatUri u on u.id = s.uriId " +
             "where s.timestamp between ?1 and ?2 " +
-            "group by s.app, s.uri " +
-            "order by count (s.ip) desc")
+            "group by a.name, u.uri " +
+            "order by sum (s.weight) desc")
     List<ViewStats> findALLStats(LocalDateTime start, LocalDateTime end);
 
     @Query("select new ru.practicum.ewm.ViewStats" +
-            "(s.app, s.uri,  (count (s.ip)) / (count (s.ip)))" +
+            "(a.name, u.uri, (count (*)) / (count (*)))" +
             "from Stat s " +
+            "join StatApp a on a.id = s.appId " +
+            "join StatUri u on u.id = s.uriId " +
             "where s.timestamp between ?1 and ?2 " +
-            "group by s.app, s.uri, s.ip " +
-            "having count (s.ip) > 1 " +
-            "order by count (s.ip) desc")
+            "group by a.name, u.uri, s.ip " +
+            "having count (*) > 1 " +
+            "order by count (*) desc")
     List<ViewStats> findALLStatsWithUniqueIp(LocalDateTime start, LocalDateTime end);
 
     @Query("select new ru.practicum.ewm.ViewStats" +
-            "(s.app, s.uri, (count (s.ip)) / (count (s.ip)))" +
+            "(a.name, u.uri, (count (*)) / (count (*)))" +
             "from Stat s " +
+            "join StatApp a on a.id = s.appId " +
+            "join StatUri u on u.id = s.uriId " +
             "where s.timestamp between ?1 and ?2 " +
-            "and s.uri in ?3 " +
-            "group by s.app, s.uri, s.ip " +
-            "having count (s.ip) > 1 " +
-            "order by count (s.ip) desc")
+            "and s.uriId in (select f.id from StatUri f where f.uri in ?3) " +
+            "group by a.name, u.uri, s.ip " +
+            "having count (*) > 1 " +
+            "order by count (*) desc")
     List<ViewStats> findStatsWithUniqueIp(LocalDateTime start, LocalDateTime end, List<String> uris);
 
     @Query("select new ru.practicum.ewm.ViewStats" +
-            "(s.app, s.uri, count (s.ip))" +
+            "(a.name, u.uri, sum (s.weight))" +
             "from Stat s " +
+            "join StatApp a on a.id = s.appId " +
+            "join StatUri u on u.id = s.uriId " +
             "where s.timestamp between ?1 and ?2 " +
-            "and s.uri in ?3 " +
-            "group by s.app, s.uri " +
-            "order by count (s.ip) desc")
+            "and s.uriId in (select f.id from StatUri f where f.uri in ?3) " +
+            "group by a.name, u.uri " +
+            "order by sum (s.weight) desc")
     List<ViewStats> findStatsByUriList(LocalDateTime start, LocalDateTime end, List<String> uris);
-}
\ No newline at end of file
+
+    @Query("select new ru.practicum.ewm.ViewStats" +
+            "(a.name, u.uri, sum (s.weight))" +
+            "from Stat s " +
+            "join StatApp a on a.id = s.appId " +
+            "join StatUri u on u.id = s.uriId " +
+            "where s.timestamp >= ?1 and s.timestamp < ?2 " +
+            "group by a.name, u.uri")
+    List<ViewStats> countHits(LocalDateTime from, LocalDateTime to);
+
+    @Query("select new ru.practicum.ewm.ViewStats" +
+            "(a.name, u.uri, sum (s.weight))" +
+            "from Stat s " +
+            "join StatApp a on a.id = s.appId " +
+            "join StatUri u on u.id = s.uriId " +
+            "where s.timestamp >= ?1 and s.timestamp < ?2 " +
+            "and s.uriId in (select f.id from StatUri f where f.uri in ?3) " +
+            "group by a.name, u.uri")
+    List<ViewStats> countHitsByUris(LocalDateTime from, LocalDateTime to, List<String> uris);
+
+    @Query("select distinct a.name as app, u.uri as uri, s.ip as ip " +
+            "from Stat s " +
+            "join StatApp a on a.id = s.appId " +
+            "join StatUri u on u.id = s.uriId " +
+            "where s.timestamp >= ?1 and s.timestamp < ?2")
+    List<StatVisitor> findVisitors(LocalDateTime from, LocalDateTime to);
+
+    @Query("select distinct a.name as app, u.uri as uri, s.ip as ip " +
+            "from Stat s " +
+            "join StatApp a on a.id = s.appId " +
+            "join StatUri u on u.id = s.uriId " +
+            "where s.timestamp >= ?1 and s.timestamp < ?2 " +
+            "and s.uriId in (select f.id from StatUri f where f.uri in ?3)")
+    List<StatVisitor> findVisitorsByUris(LocalDateTime from, LocalDateTime to, List<String> uris);
+
+    @Query("select new ru.practicum.ewm.model.StatDayRows" +
+            "(year (s.timestamp), month (s.timestamp), day (s.timestamp), count (s)) " +
+            "from Stat s " +
+            "group by year (s.timestamp), month (s.timestamp), day (s.timestamp)")
+    List<StatDayRows> countRowsByDay();
+}
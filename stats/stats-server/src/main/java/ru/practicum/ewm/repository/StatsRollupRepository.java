@@ -0,0 +1,129 @@
+package ru.practicum.ewm.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Repository;
+import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.config.ConditionalOnDatabaseEngine;
+import ru.practicum.ewm.constants.Granularity;
+import ru.practicum.ewm.model.StatRollup;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+
+@Repository
+@ConditionalOnDatabaseEngine
+public class StatsRollupRepository {
+    private static final String UPSERT_POSTGRES = "INSERT INTO statistics_rollup (granularity, bucket, app, uri, hits) " +
+            "VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (granularity, bucket, app, uri) " +
+            "DO UPDATE SET hits = statistics_rollup.hits + EXCLUDED.hits";
+    private static final String UPSERT_STANDARD = "MERGE INTO statistics_rollup r " +
+            "USING (VALUES (CAST(? AS VARCHAR(10)), CAST(? AS TIMESTAMP), " +
+            "CAST(? AS VARCHAR(50)), CAST(? AS VARCHAR(70)), CAST(? AS BIGINT))) " +
+            "AS v (granularity, bucket, app, uri, hits) " +
+            "ON r.granularity = v.granularity AND r.bucket = v.bucket AND r.app = v.app AND r.uri = v.uri " +
+            "WHEN MATCHED THEN UPDATE SET hits = r.hits + v.hits " +
+            "WHEN NOT MATCHED THEN INSERT (granularity, bucket, app, uri, hits) " +
+            "VALUES (v.granularity, v.bucket, v.app, v.uri, v.hits)";
+    private static final String SUM_HITS = "SELECT app, uri, SUM(hits) AS hits " +
+            "FROM statistics_rollup " +
+            "WHERE granularity = :granularity AND bucket >= :from AND bucket < :to ";
+    private static final String BY_URIS = "AND uri IN (:uris) ";
+    private static final String FIND_BUCKETS = "SELECT bucket, app, uri, hits " +
+            "FROM statistics_rollup " +
+            "WHERE granularity = ? AND bucket >= ? AND bucket < ?";
+    private static final String FIND_BUCKETS_SINCE = "SELECT bucket, app, uri, hits " +
+            "FROM statistics_rollup " +
+            "WHERE granularity = ? AND bucket >= ?";
+    private static final String FIND_BUCKETS_BY_URIS = "SELECT bucket, app, uri, hits " +
+            "FROM statistics_rollup " +
+            "WHERE granularity = :granularity AND bucket >= :from AND bucket < :to ";
+    private static final String GROUP_BY = "GROUP BY app, uri";
+    private static final String DELETE_BEFORE = "DELETE FROM statistics_rollup WHERE bucket < ?";
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final String upsert;
+
+    public StatsRollupRepository(JdbcTemplate jdbcTemplate,
+                                 NamedParameterJdbcTemplate namedJdbcTemplate) throws MetaDataAccessException {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        String database = JdbcUtils.extractDatabaseMetaData(
+                Objects.requireNonNull(jdbcTemplate.getDataSource()), DatabaseMetaData::getDatabaseProductName);
+        this.upsert = "PostgreSQL".equals(database) ? UPSERT_POSTGRES : UPSERT_STANDARD;
+    }
+
+    public void increment(List<StatRollup> rollups) {
+        jdbcTemplate.batchUpdate(upsert, rollups, rollups.size(), (statement, rollup) -> {
+            statement.setString(1, rollup.getGranularity().name());
+            statement.setTimestamp(2, Timestamp.valueOf(rollup.getBucket()));
+            statement.setString(3, rollup.getApp());
+            statement.setString(4, rollup.getUri());
+            statement.setLong(5, rollup.getHits());
+        });
+    }
+
+    public List<ViewStats> sumHits(Granularity granularity, LocalDateTime from, LocalDateTime to, List<String> uris) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("granularity", granularity.name())
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+        String sql = SUM_HITS;
+        if (uris != null) {
+            sql += BY_URIS;
+            parameters.addValue("uris", uris);
+        }
+
+        return namedJdbcTemplate.query(sql + GROUP_BY, parameters, (resultSet, rowNum) -> new ViewStats(
+                resultSet.getString("app"),
+                resultSet.getString("uri"),
+                resultSet.getLong("hits")));
+    }
+
+    public List<StatRollup> findBuckets(Granularity granularity, LocalDateTime from, LocalDateTime to) {
+        return jdbcTemplate.query(FIND_BUCKETS, (resultSet, rowNum) -> toRollup(granularity, resultSet),
+                granularity.name(), Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    public List<StatRollup> findBuckets(Granularity granularity, LocalDateTime from, LocalDateTime to,
+                                        List<String> uris) {
+        if (uris == null) {
+            return findBuckets(granularity, from, to);
+        }
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("granularity", granularity.name())
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to))
+                .addValue("uris", uris);
+
+        return namedJdbcTemplate.query(FIND_BUCKETS_BY_URIS + BY_URIS, parameters,
+                (resultSet, rowNum) -> toRollup(granularity, resultSet));
+    }
+
+    public List<StatRollup> findBucketsSince(Granularity granularity, LocalDateTime from) {
+        return jdbcTemplate.query(FIND_BUCKETS_SINCE, (resultSet, rowNum) -> toRollup(granularity, resultSet),
+                granularity.name(), Timestamp.valueOf(from));
+    }
+
+    private StatRollup toRollup(Granularity granularity, ResultSet resultSet) throws SQLException {
+        return new StatRollup(
+                granularity,
+                resultSet.getTimestamp("bucket").toLocalDateTime(),
+                resultSet.getString("app"),
+                resultSet.getString("uri"),
+                resultSet.getLong("hits"));
+    }
+
+    public int deleteBefore(LocalDateTime before) {
+        return jdbcTemplate.update(DELETE_BEFORE, Timestamp.valueOf(before));
+    }
+}
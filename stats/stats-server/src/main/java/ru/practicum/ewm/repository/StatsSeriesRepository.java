@@ -0,0 +1,62 @@
+package ru.practicum.ewm.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.ewm.config.ConditionalOnDatabaseEngine;
+import ru.practicum.ewm.model.StatWindow;
+import ru.practicum.ewm.model.StatWindowHits;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.StringJoiner;
+
+@Repository
+@ConditionalOnDatabaseEngine
+@RequiredArgsConstructor
+public class StatsSeriesRepository {
+    private static final String SELECT = "SELECT w.idx AS idx, a.name AS app, u.uri AS uri, SUM(s.weight) AS hits " +
+            "FROM statistics s " +
+            "JOIN (VALUES %s) AS w (idx, from_ts, to_ts) " +
+            "ON s.time_stamp >= w.from_ts AND s.time_stamp < w.to_ts " +
+            "JOIN statistics_app a ON a.id = s.app_id " +
+            "JOIN statistics_uri u ON u.id = s.uri_id " +
+            "WHERE s.time_stamp >= :from AND s.time_stamp < :to ";
+    private static final String WINDOW = "(CAST(:idx%1$d AS INTEGER), CAST(:from%1$d AS TIMESTAMP), " +
+            "CAST(:to%1$d AS TIMESTAMP))";
+    private static final String BY_URIS = "AND s.uri_id IN " +
+            "(SELECT f.id FROM statistics_uri f WHERE f.uri IN (:uris)) ";
+    private static final String GROUP_BY = "GROUP BY w.idx, a.name, u.uri";
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public List<StatWindowHits> countHits(List<StatWindow> windows, List<String> uris) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        StringJoiner values = new StringJoiner(", ");
+        LocalDateTime from = windows.get(0).getFrom();
+        LocalDateTime to = windows.get(0).getTo();
+        for (int i = 0; i < windows.size(); i++) {
+            StatWindow window = windows.get(i);
+            values.add(String.format(WINDOW, i));
+            parameters.addValue("idx" + i, i)
+                    .addValue("from" + i, Timestamp.valueOf(window.getFrom()))
+                    .addValue("to" + i, Timestamp.valueOf(window.getTo()));
+            from = window.getFrom().isBefore(from) ? window.getFrom() : from;
+            to = window.getTo().isAfter(to) ? window.getTo() : to;
+        }
+        parameters.addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+        String sql = String.format(SELECT, values);
+        if (uris != null) {
+            sql += BY_URIS;
+            parameters.addValue("uris", uris);
+        }
+
+        return namedJdbcTemplate.query(sql + GROUP_BY, parameters, (resultSet, rowNum) -> new StatWindowHits(
+                resultSet.getInt("idx"),
+                resultSet.getString("app"),
+                resultSet.getString("uri"),
+                resultSet.getLong("hits")));
+    }
+}
@@ -0,0 +1,92 @@
+package ru.practicum.ewm.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Repository;
+import ru.practicum.ewm.config.ConditionalOnDatabaseEngine;
+import ru.practicum.ewm.model.StatSketch;
+
+import java.sql.DatabaseMetaData;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+
+@Repository
+@ConditionalOnDatabaseEngine
+public class StatsSketchRepository {
+    private static final String INSERT_IF_ABSENT_POSTGRES = "INSERT INTO statistics_sketch (bucket, app, uri, sketch) " +
+            "VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT (bucket, app, uri) DO NOTHING";
+    private static final String INSERT_IF_ABSENT_STANDARD = "MERGE INTO statistics_sketch s " +
+            "USING (VALUES (CAST(? AS TIMESTAMP), CAST(? AS VARCHAR(50)), CAST(? AS VARCHAR(70)), " +
+            "CAST(? AS BINARY VARYING))) AS v (bucket, app, uri, sketch) " +
+            "ON s.bucket = v.bucket AND s.app = v.app AND s.uri = v.uri " +
+            "WHEN NOT MATCHED THEN INSERT (bucket, app, uri, sketch) VALUES (v.bucket, v.app, v.uri, v.sketch)";
+    private static final String SELECT_FOR_UPDATE = "SELECT sketch FROM statistics_sketch " +
+            "WHERE bucket = ? AND app = ? AND uri = ? FOR UPDATE";
+    private static final String UPDATE = "UPDATE statistics_sketch SET sketch = ? " +
+            "WHERE bucket = ? AND app = ? AND uri = ?";
+    private static final String FIND = "SELECT bucket, app, uri, sketch FROM statistics_sketch " +
+            "WHERE bucket >= :from AND bucket < :to ";
+    private static final String BY_URIS = "AND uri IN (:uris)";
+    private static final String DELETE_BEFORE = "DELETE FROM statistics_sketch WHERE bucket < ?";
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final String insertIfAbsent;
+
+    public StatsSketchRepository(JdbcTemplate jdbcTemplate,
+                                 NamedParameterJdbcTemplate namedJdbcTemplate) throws MetaDataAccessException {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        String database = JdbcUtils.extractDatabaseMetaData(
+                Objects.requireNonNull(jdbcTemplate.getDataSource()), DatabaseMetaData::getDatabaseProductName);
+        this.insertIfAbsent = "PostgreSQL".equals(database) ? INSERT_IF_ABSENT_POSTGRES : INSERT_IF_ABSENT_STANDARD;
+    }
+
+    public void insertIfAbsent(List<StatSketch> sketches) {
+        jdbcTemplate.batchUpdate(insertIfAbsent, sketches, sketches.size(), (statement, sketch) -> {
+            statement.setTimestamp(1, Timestamp.valueOf(sketch.getBucket()));
+            statement.setString(2, sketch.getApp());
+            statement.setString(3, sketch.getUri());
+            statement.setBytes(4, sketch.getSketch());
+        });
+    }
+
+    public byte[] findForUpdate(LocalDateTime bucket, String app, String uri) {
+        return jdbcTemplate.queryForObject(SELECT_FOR_UPDATE, byte[].class, Timestamp.valueOf(bucket), app, uri);
+    }
+
+    public void update(List<StatSketch> sketches) {
+        jdbcTemplate.batchUpdate(UPDATE, sketches, sketches.size(), (statement, sketch) -> {
+            statement.setBytes(1, sketch.getSketch());
+            statement.setTimestamp(2, Timestamp.valueOf(sketch.getBucket()));
+            statement.setString(3, sketch.getApp());
+            statement.setString(4, sketch.getUri());
+        });
+    }
+
+    public List<StatSketch> findSketches(LocalDateTime from, LocalDateTime to, List<String> uris) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+        String sql = FIND;
+        if (uris != null) {
+            sql += BY_URIS;
+            parameters.addValue("uris", uris);
+        }
+
+        return namedJdbcTemplate.query(sql, parameters, (resultSet, rowNum) -> new StatSketch(
+                resultSet.getTimestamp("bucket").toLocalDateTime(),
+                resultSet.getString("app"),
+                resultSet.getString("uri"),
+                resultSet.getBytes("sketch")));
+    }
+
+    public int deleteBefore(LocalDateTime before) {
+        return jdbcTemplate.update(DELETE_BEFORE, Timestamp.valueOf(before));
+    }
+}
@@ -0,0 +1,61 @@
+package ru.practicum.ewm.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.config.ConditionalOnDatabaseEngine;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Repository
+@ConditionalOnDatabaseEngine
+public class StatsStreamRepository {
+    private static final int FETCH_SIZE = 500;
+    private static final String SELECT = "SELECT a.name AS app, u.uri AS uri, %s AS hits " +
+            "FROM statistics s " +
+            "JOIN statistics_app a ON a.id = s.app_id " +
+            "JOIN statistics_uri u ON u.id = s.uri_id " +
+            "WHERE s.time_stamp >= :from AND s.time_stamp < :to ";
+    private static final String BY_URIS = "AND s.uri_id IN " +
+            "(SELECT f.id FROM statistics_uri f WHERE f.uri IN (:uris)) ";
+    private static final String GROUP_BY = "GROUP BY a.name, u.uri " +
+            "ORDER BY hits DESC, app, uri ";
+    private static final String LIMIT = "LIMIT :limit ";
+    private static final String OFFSET = "OFFSET :offset";
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public StatsStreamRepository(DataSource dataSource) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(FETCH_SIZE);
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    public Stream<ViewStats> streamStats(LocalDateTime from, LocalDateTime to, List<String> uris, boolean unique,
+                                         Integer limit, int offset) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to))
+                .addValue("offset", offset);
+        String sql = String.format(SELECT, unique ? "COUNT(DISTINCT s.ip)" : "SUM(s.weight)");
+        if (uris != null) {
+            sql += BY_URIS;
+            parameters.addValue("uris", uris);
+        }
+        sql += GROUP_BY;
+        if (limit != null) {
+            sql += LIMIT;
+            parameters.addValue("limit", limit);
+        }
+
+        return namedJdbcTemplate.queryForStream(sql + OFFSET, parameters, (resultSet, rowNum) -> new ViewStats(
+                resultSet.getString("app"),
+                resultSet.getString("uri"),
+                resultSet.getLong("hits")));
+    }
+}
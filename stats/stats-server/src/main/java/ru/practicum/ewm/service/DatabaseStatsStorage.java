@@ -0,0 +1,221 @@
+package ru.practicum.ewm.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.ewm.StatsWindow;
+import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.ViewStatsSeries;
+import ru.practicum.ewm.config.BitmapProperties;
+import ru.practicum.ewm.config.CacheProperties;
+import ru.practicum.ewm.config.ConditionalOnDatabaseEngine;
+import ru.practicum.ewm.config.CounterProperties;
+import ru.practicum.ewm.config.IngestProperties;
+import ru.practicum.ewm.config.RollupProperties;
+import ru.practicum.ewm.config.SketchProperties;
+import ru.practicum.ewm.config.TopProperties;
+import ru.practicum.ewm.constants.Granularity;
+import ru.practicum.ewm.model.Stat;
+import ru.practicum.ewm.repository.StatsRepository;
+import ru.practicum.ewm.repository.StatsStreamRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Component
+@ConditionalOnDatabaseEngine
+@RequiredArgsConstructor
+public class DatabaseStatsStorage implements StatsStorage {
+    private final StatsRepository repository;
+    private final StatsWriter writer;
+    private final HitBuffer buffer;
+    private final IngestProperties ingestProperties;
+    private final StatsRollupService rollupService;
+    private final RollupProperties rollupProperties;
+    private final StatsSketchService sketchService;
+    private final SketchProperties sketchProperties;
+    private final VisitorBitmapIndex bitmapIndex;
+    private final BitmapProperties bitmapProperties;
+    private final RecentHitCounter recentHitCounter;
+    private final CounterProperties counterProperties;
+    private final TopHitsService topHitsService;
+    private final TopProperties topProperties;
+    private final StatsQueryCache queryCache;
+    private final CacheProperties cacheProperties;
+    private final StatsStreamRepository streamRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final StatsSeriesService seriesService;
+    private final UriIndex uriIndex;
+    private final ParallelStatsAggregator parallelAggregator;
+
+    @Override
+    public void write(List<Stat> stats) {
+        if (ingestProperties.getMode() == IngestProperties.Mode.BUFFERED) {
+            buffer.add(stats);
+        } else {
+            writer.write(stats);
+        }
+    }
+
+    @Override
+    public List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                                    Boolean approximate) {
+        if (!cacheProperties.isEnabled()) {
+            return findStats(start, end, uris, unique, approximate);
+        }
+        return findCachedStats(start, end, uris, unique, approximate);
+    }
+
+    private List<ViewStats> findCachedStats(LocalDateTime timeStart, LocalDateTime timeEnd, List<String> uris,
+                                            boolean unique, Boolean approximate) {
+        Granularity align = cacheProperties.getAlign();
+        LocalDateTime alignedStart = align == null ? timeStart : align.ceil(timeStart);
+        LocalDateTime alignedEnd = align == null ? timeEnd : align.floor(timeEnd);
+        if (align == null || unique || !alignedStart.isBefore(alignedEnd)) {
+            return queryCache.get(timeStart, timeEnd, uris, String.valueOf(unique), approximate,
+                    () -> findStats(timeStart, timeEnd, uris, unique, approximate));
+        }
+
+        List<String> matched = uris == null ? null : uriIndex.expand(uris);
+        if (matched != null && matched.isEmpty()) {
+            return List.of();
+        }
+        ViewStatsAccumulator accumulator = new ViewStatsAccumulator();
+        accumulator.addAll(queryCache.get(alignedStart, alignedEnd, uris, String.valueOf(unique), approximate,
+                () -> countStoredHits(alignedStart, alignedEnd, matched)));
+        accumulator.addAll(countStoredHits(timeStart, alignedStart, matched));
+        accumulator.addAll(countStoredHits(alignedEnd, TimeBounds.exclusiveEnd(timeEnd), matched));
+        return accumulator.toSortedList();
+    }
+
+    private List<ViewStats> findStats(LocalDateTime timeStart, LocalDateTime timeEnd, List<String> uris,
+                                      boolean unique, Boolean approximate) {
+        if (uris == null) {
+            return unique ? countVisitors(timeStart, timeEnd, null, approximate) : countHits(timeStart, timeEnd, null);
+        }
+        List<String> matched = uriIndex.expand(uris);
+        if (matched.isEmpty()) {
+            return List.of();
+        }
+        if (unique) {
+            return countVisitors(timeStart, timeEnd, matched, approximate);
+        }
+        return countHits(timeStart, timeEnd, matched);
+    }
+
+    @Override
+    public StatsStream streamStats(LocalDateTime from, LocalDateTime to, List<String> uris, boolean unique,
+                                   Integer limit, int offset) {
+        List<String> matched = uriIndex.expand(uris);
+        if (matched != null && matched.isEmpty()) {
+            return action -> { };
+        }
+        return action -> transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<ViewStats> stats = streamRepository.streamStats(from, to, matched, unique, limit, offset)) {
+                stats.forEach(action);
+            }
+        });
+    }
+
+    @Override
+    public List<ViewStatsSeries> getSeries(LocalDateTime start, LocalDateTime end, Granularity granularity,
+                                           List<String> uris) {
+        List<String> matched = uriIndex.expand(uris);
+        if (matched != null && matched.isEmpty()) {
+            return List.of();
+        }
+        return seriesService.getSeries(start, end, granularity, matched);
+    }
+
+    @Override
+    public List<ViewStatsSeries> getSeries(List<StatsWindow> windows, List<String> uris) {
+        List<String> matched = uriIndex.expand(uris);
+        if (matched != null && matched.isEmpty()) {
+            return List.of();
+        }
+        return seriesService.getSeries(windows, matched);
+    }
+
+    @Override
+    public List<ViewStats> getTopStats(LocalDateTime timeStart, LocalDateTime timeEnd, int limit, Boolean exact) {
+        if (!Boolean.TRUE.equals(exact) && topProperties.isEnabled()) {
+            LocalDateTime to = TimeBounds.exclusiveEnd(timeEnd);
+            LocalDateTime topFrom = Granularity.HOUR.ceil(timeStart);
+            if (topFrom.isBefore(topHitsService.getCoverageStart())) {
+                topFrom = topHitsService.getCoverageStart();
+            }
+            LocalDateTime topTo = Granularity.HOUR.floor(to);
+            if (topFrom.isBefore(topTo) && topHitsService.isComplete(topFrom, topTo)) {
+                List<ViewStats> edges = new ArrayList<>(countStoredHits(timeStart, topFrom, null));
+                edges.addAll(countStoredHits(topTo, to, null));
+                return topHitsService.getTop(topFrom, topTo, edges, limit);
+            }
+        }
+
+        List<ViewStats> stats = countHits(timeStart, timeEnd, null);
+        return stats.subList(0, Math.min(limit, stats.size()));
+    }
+
+    private List<ViewStats> countHits(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        if (counterProperties.isEnabled()) {
+            LocalDateTime to = TimeBounds.exclusiveEnd(end);
+            LocalDateTime recentFrom = Granularity.MINUTE.ceil(start);
+            if (recentFrom.isBefore(recentHitCounter.getCoverageStart())) {
+                recentFrom = recentHitCounter.getCoverageStart();
+            }
+            LocalDateTime recentTo = Granularity.MINUTE.floor(to);
+            if (recentTo.isAfter(recentHitCounter.getCoverageEnd())) {
+                recentTo = recentHitCounter.getCoverageEnd();
+            }
+            if (recentFrom.isBefore(recentTo)) {
+                ViewStatsAccumulator accumulator = new ViewStatsAccumulator();
+                accumulator.addAll(recentHitCounter.getStats(recentFrom, recentTo, uris));
+                accumulator.addAll(countStoredHits(start, recentFrom, uris));
+                accumulator.addAll(countStoredHits(recentTo, to, uris));
+                return accumulator.toSortedList();
+            }
+        }
+        if (rollupProperties.isEnabled()) {
+            return rollupService.getStats(start, end, uris);
+        }
+        if (parallelAggregator.isSplit(start, end)) {
+            return parallelAggregator.countHits(start, TimeBounds.exclusiveEnd(end), uris);
+        }
+        if (uris == null) {
+            return repository.findALLStats(start, end);
+        }
+        return repository.findStatsByUriList(start, end, uris);
+    }
+
+    private List<ViewStats> countStoredHits(LocalDateTime from, LocalDateTime to, List<String> uris) {
+        if (!from.isBefore(to)) {
+            return List.of();
+        }
+        if (rollupProperties.isEnabled()) {
+            return rollupService.countHits(from, to, uris);
+        }
+        if (parallelAggregator.isSplit(from, to)) {
+            return parallelAggregator.countHits(from, to, uris);
+        }
+        if (uris == null) {
+            return repository.countHits(from, to);
+        }
+        return repository.countHitsByUris(from, to, uris);
+    }
+
+    private List<ViewStats> countVisitors(LocalDateTime start, LocalDateTime end, List<String> uris,
+                                          Boolean approximate) {
+        if (Boolean.TRUE.equals(approximate) && sketchProperties.isEnabled()) {
+            return sketchService.getStats(start, end, uris);
+        }
+        if (bitmapProperties.isEnabled()) {
+            return bitmapIndex.getStats(start, end, uris);
+        }
+        if (uris == null) {
+            return repository.findALLStatsWithUniqueIp(start, end);
+        }
+        return repository.findStatsWithUniqueIp(start, end, uris);
+    }
+}
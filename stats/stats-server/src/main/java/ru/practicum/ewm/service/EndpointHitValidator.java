@@ -0,0 +1,28 @@
+package ru.practicum.ewm.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.EndpointHit;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+@Component
+@RequiredArgsConstructor
+public class EndpointHitValidator {
+    private final Validator validator;
+
+    public Map<String, String> validate(EndpointHit endpointHit) {
+        Map<String, String> errors = new HashMap<>();
+        if (endpointHit == null) {
+            errors.put("hit", "The hit is malformed");
+            return errors;
+        }
+        Set<ConstraintViolation<EndpointHit>> violations = validator.validate(endpointHit);
+        violations.forEach(violation -> errors.put(violation.getPropertyPath().toString(), violation.getMessage()));
+        return errors;
+    }
+}
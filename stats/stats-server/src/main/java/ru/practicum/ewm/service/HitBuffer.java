@@ -0,0 +1,307 @@
+package ru.practicum.ewm.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.config.ConditionalOnDatabaseEngine;
+import ru.practicum.ewm.config.IngestProperties;
+import ru.practicum.ewm.exceptions.HitBufferFullException;
+import ru.practicum.ewm.model.Stat;
+import ru.practicum.ewm.repository.HitJournal;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Slf4j
+@Component
+@ConditionalOnDatabaseEngine
+public class HitBuffer {
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+    private final IngestProperties properties;
+    private final StatsWriter writer;
+    private final HitJournal journal;
+    private final BlockingQueue<Entry> queue;
+    private final Counter droppedHits;
+    private final Counter deadLetteredHits;
+    private final Thread flusher;
+    private final ReadWriteLock lifecycle = new ReentrantReadWriteLock();
+    private volatile boolean accepting;
+    private volatile boolean running;
+    private int failedAttempts;
+
+    public HitBuffer(IngestProperties properties, StatsWriter writer, HitJournal journal, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.writer = writer;
+        this.journal = journal;
+        this.queue = new ArrayBlockingQueue<>(properties.getCapacity());
+        this.droppedHits = meterRegistry.counter("stats.buffer.dropped");
+        this.deadLetteredHits = meterRegistry.counter("stats.buffer.dead-lettered");
+        this.flusher = new Thread(this::flushLoop, "stats-buffer-flusher");
+        meterRegistry.gauge("stats.buffer.size", queue, BlockingQueue::size);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (properties.getMode() != IngestProperties.Mode.BUFFERED) {
+            return;
+        }
+        replay();
+        running = true;
+        accepting = true;
+        flusher.start();
+        log.info("Hit buffer started with capacity {} and flush interval {}",
+                properties.getCapacity(), properties.getFlushInterval());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        accepting = false;
+        lifecycle.writeLock().lock();
+        lifecycle.writeLock().unlock();
+        running = false;
+        flusher.interrupt();
+        flusher.join(properties.getShutdownTimeout().toMillis() + properties.getFlushRetryMaxBackoff().toMillis());
+        if (flusher.isAlive()) {
+            log.warn("Hit buffer flusher did not stop in {}", properties.getShutdownTimeout());
+        }
+    }
+
+    public void add(List<Stat> stats) {
+        lifecycle.readLock().lock();
+        try {
+            if (!accepting) {
+                throw new HitBufferFullException("The hit buffer is not accepting hits");
+            }
+            long segment = journal.append(stats);
+            for (int i = 0; i < stats.size(); i++) {
+                try {
+                    add(new Entry(stats.get(i), segment));
+                } catch (HitBufferFullException e) {
+                    journal.release(segment, stats.size() - i);
+                    throw e;
+                }
+            }
+        } finally {
+            lifecycle.readLock().unlock();
+        }
+    }
+
+    private void add(Entry entry) {
+        switch (properties.getOverflowPolicy()) {
+            case BLOCK:
+                try {
+                    while (!queue.offer(entry, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                        if (!accepting) {
+                            throw new HitBufferFullException("The hit buffer is not accepting hits");
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new HitBufferFullException("Interrupted while waiting for space in the hit buffer");
+                }
+                break;
+            case DROP_OLDEST:
+                while (!queue.offer(entry)) {
+                    Entry dropped = queue.poll();
+                    if (dropped != null) {
+                        journal.release(dropped.getSegment(), 1);
+                        droppedHits.increment();
+                    }
+                }
+                break;
+            case REJECT:
+                if (!queue.offer(entry)) {
+                    droppedHits.increment();
+                    throw new HitBufferFullException("The hit buffer is full");
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unknown overflow policy " + properties.getOverflowPolicy());
+        }
+    }
+
+    private void flushLoop() {
+        List<Entry> batch = new ArrayList<>(properties.getFlushSize());
+        Duration backoff = properties.getFlushRetryBackoff();
+        while (running) {
+            try {
+                fill(batch);
+                if (flush(batch)) {
+                    backoff = properties.getFlushRetryBackoff();
+                } else {
+                    Thread.sleep(backoff.toMillis());
+                    backoff = nextBackoff(backoff);
+                }
+            } catch (InterruptedException e) {
+                // stop() interrupts the flusher; whatever is left is drained below
+            }
+        }
+
+        Thread.interrupted();
+        long deadline = System.nanoTime() + properties.getShutdownTimeout().toNanos();
+        while (!batch.isEmpty() || !queue.isEmpty()) {
+            queue.drainTo(batch, properties.getFlushSize() - batch.size());
+            if (flush(batch)) {
+                continue;
+            }
+            if (System.nanoTime() + backoff.toNanos() > deadline) {
+                break;
+            }
+            try {
+                Thread.sleep(backoff.toMillis());
+            } catch (InterruptedException e) {
+                break;
+            }
+            backoff = nextBackoff(backoff);
+        }
+        int unflushed = batch.size() + queue.size();
+        if (unflushed > 0) {
+            log.error("Hit buffer stopped with {} unflushed hits, {}", unflushed,
+                    journal.isEnabled() ? "they are kept in the journal until restart" : "they are lost");
+        }
+    }
+
+    private Duration nextBackoff(Duration backoff) {
+        Duration next = backoff.multipliedBy(2);
+        return next.compareTo(properties.getFlushRetryMaxBackoff()) > 0 ? properties.getFlushRetryMaxBackoff() : next;
+    }
+
+    private void fill(List<Entry> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + properties.getFlushInterval().toNanos();
+        while (batch.size() < properties.getFlushSize()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            Entry entry = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (entry == null) {
+                return;
+            }
+            batch.add(entry);
+            queue.drainTo(batch, properties.getFlushSize() - batch.size());
+        }
+    }
+
+    private boolean flush(List<Entry> batch) {
+        if (batch.isEmpty()) {
+            return true;
+        }
+        try {
+            write(batch);
+        } catch (RuntimeException e) {
+            if (++failedAttempts <= properties.getFlushMaxRetries()) {
+                log.error("Failed to flush {} hits, retrying", batch.size(), e);
+                return false;
+            }
+            log.error("Failed to flush {} hits {} times, isolating the failing hits", batch.size(), failedAttempts, e);
+            if (!isolate(batch)) {
+                return false;
+            }
+        }
+        failedAttempts = 0;
+        batch.clear();
+        return true;
+    }
+
+    private boolean isolate(List<Entry> batch) {
+        Deque<List<Entry>> parts = new ArrayDeque<>();
+        parts.push(new ArrayList<>(batch));
+        batch.clear();
+        while (!parts.isEmpty()) {
+            List<Entry> part = parts.pop();
+            try {
+                write(part);
+            } catch (RuntimeException e) {
+                if (isUnavailable(e)) {
+                    batch.addAll(part);
+                    parts.forEach(batch::addAll);
+                    return false;
+                }
+                if (part.size() == 1) {
+                    deadLetter(part.get(0), e);
+                    continue;
+                }
+                int middle = part.size() / 2;
+                parts.push(new ArrayList<>(part.subList(middle, part.size())));
+                parts.push(new ArrayList<>(part.subList(0, middle)));
+            }
+        }
+        return true;
+    }
+
+    private boolean isUnavailable(RuntimeException e) {
+        return e instanceof DataAccessResourceFailureException || e instanceof TransientDataAccessException;
+    }
+
+    private void deadLetter(Entry entry, RuntimeException e) {
+        log.error("Dropping hit {} that cannot be written", entry.getStat(), e);
+        deadLetteredHits.increment();
+        journal.release(entry.getSegment(), 1);
+    }
+
+    private void write(List<Entry> entries) {
+        List<Stat> stats = new ArrayList<>(entries.size());
+        Map<Long, Integer> flushedBySegment = new HashMap<>();
+        for (Entry entry : entries) {
+            stats.add(entry.getStat());
+            flushedBySegment.merge(entry.getSegment(), 1, Integer::sum);
+        }
+        writer.write(stats);
+        flushedBySegment.forEach(journal::release);
+    }
+
+    private void replay() throws IOException {
+        if (!journal.isEnabled()) {
+            return;
+        }
+        List<Stat> stats = journal.recover();
+        List<Entry> batch = new ArrayList<>(properties.getFlushSize());
+        Duration backoff = properties.getFlushRetryBackoff();
+        for (int from = 0; from < stats.size(); from += properties.getFlushSize()) {
+            stats.subList(from, Math.min(from + properties.getFlushSize(), stats.size()))
+                    .forEach(stat -> batch.add(new Entry(stat, -1)));
+            while (!flush(batch)) {
+                if (failedAttempts > properties.getFlushMaxRetries()) {
+                    throw new IllegalStateException("Failed to replay the hit journal, it is kept until restart");
+                }
+                try {
+                    Thread.sleep(backoff.toMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while replaying the hit journal");
+                }
+                backoff = nextBackoff(backoff);
+            }
+        }
+        journal.truncateRecovered();
+        if (!stats.isEmpty()) {
+            log.info("Replayed {} hits from the hit journal", stats.size());
+        }
+    }
+
+    @Value
+    private static class Entry {
+        Stat stat;
+        long segment;
+    }
+}
@@ -0,0 +1,148 @@
+package ru.practicum.ewm.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.config.DedupProperties;
+import ru.practicum.ewm.sketch.BloomFilter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+@Component
+public class HitDeduplicator {
+    private final DedupProperties properties;
+    private final Map<String, Claim> recent = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweep = new AtomicLong();
+    private final Counter duplicateHits;
+    private final Counter bloomDuplicateHits;
+    private volatile Generation generation;
+
+    public HitDeduplicator(DedupProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.duplicateHits = meterRegistry.counter("stats.hits.duplicate");
+        this.bloomDuplicateHits = meterRegistry.counter("stats.hits.duplicate.bloom");
+    }
+
+    public void save(List<EndpointHit> hits, Consumer<List<EndpointHit>> ingest) {
+        if (!properties.isEnabled()) {
+            ingest.accept(hits);
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Generation current = rotate(now);
+        List<EndpointHit> accepted = new ArrayList<>(hits.size());
+        List<String> claimed = new ArrayList<>();
+        for (EndpointHit hit : hits) {
+            String hitId = hit.getHitId();
+            if (hitId == null) {
+                accepted.add(hit);
+            } else if (!claim(hitId, now)) {
+                duplicateHits.increment();
+            } else if (current.mightContain(hitId)) {
+                duplicateHits.increment();
+                bloomDuplicateHits.increment();
+            } else {
+                accepted.add(hit);
+                claimed.add(hitId);
+            }
+        }
+
+        try {
+            ingest.accept(accepted);
+        } catch (RuntimeException e) {
+            claimed.forEach(recent::remove);
+            throw e;
+        }
+        claimed.forEach(current::put);
+        claimed.forEach(hitId -> recent.computeIfPresent(hitId, (id, claim) -> new Claim(claim.getSeen(), false)));
+        sweep(now);
+    }
+
+    private boolean claim(String hitId, long now) {
+        long recentWindow = properties.getRecentWindow().toMillis();
+        boolean[] claimed = new boolean[1];
+        recent.compute(hitId, (id, claim) -> {
+            if (claim != null && (claim.isPending() || now - claim.getSeen() < recentWindow)) {
+                return claim;
+            }
+            claimed[0] = true;
+            return new Claim(now, true);
+        });
+        return claimed[0];
+    }
+
+    private Generation rotate(long now) {
+        Generation current = generation;
+        if (current != null && now < current.getEnd()) {
+            return current;
+        }
+        synchronized (this) {
+            current = generation;
+            if (current == null || now >= current.getEnd()) {
+                long window = properties.getWindow().toMillis();
+                BloomFilter previous = current != null && now < current.getEnd() + window ? current.getCurrent() : null;
+                current = new Generation(newFilter(), previous, now + window);
+                generation = current;
+            }
+            return current;
+        }
+    }
+
+    private void sweep(long now) {
+        long next = nextSweep.get();
+        long recentWindow = properties.getRecentWindow().toMillis();
+        if (now < next && recent.size() <= properties.getRecentCapacity()) {
+            return;
+        }
+        if (!nextSweep.compareAndSet(next, now + recentWindow)) {
+            return;
+        }
+        long oldest = now - recentWindow;
+        int excess = recent.size() - properties.getRecentCapacity();
+        if (excess > 0) {
+            long[] seen = recent.values().stream()
+                    .filter(claim -> !claim.isPending())
+                    .mapToLong(Claim::getSeen)
+                    .sorted()
+                    .toArray();
+            if (seen.length > 0) {
+                oldest = Math.max(oldest, seen[Math.min(excess, seen.length) - 1]);
+            }
+        }
+        long evictBefore = oldest;
+        recent.values().removeIf(claim -> !claim.isPending() && claim.getSeen() <= evictBefore);
+    }
+
+    private BloomFilter newFilter() {
+        long expectedHits = Math.max(1, properties.getExpectedRate() * properties.getWindow().toSeconds());
+        return new BloomFilter(expectedHits, properties.getFalsePositiveRate());
+    }
+
+    @Value
+    private static class Claim {
+        long seen;
+        boolean pending;
+    }
+
+    @Value
+    private static class Generation {
+        BloomFilter current;
+        BloomFilter previous;
+        long end;
+
+        void put(String hitId) {
+            current.put(hitId);
+        }
+
+        boolean mightContain(String hitId) {
+            return current.mightContain(hitId) || (previous != null && previous.mightContain(hitId));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package ru.practicum.ewm.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.StatsWindow;
+import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.ViewStatsSeries;
+import ru.practicum.ewm.constants.Granularity;
+import ru.practicum.ewm.model.Stat;
+import ru.practicum.ewm.repository.HitLog;
+
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "stats.storage.engine", havingValue = "log")
+public class HitLogStatsStorage implements StatsStorage {
+    private static final Comparator<ViewStats> ORDER = Comparator.comparing(ViewStats::getHits).reversed()
+            .thenComparing(ViewStats::getApp)
+            .thenComparing(ViewStats::getUri);
+    private final HitLog hitLog;
+    private final StatsSeriesService seriesService;
+
+    @Override
+    public void write(List<Stat> stats) {
+        hitLog.append(stats);
+    }
+
+    @Override
+    public List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                                    Boolean approximate) {
+        List<ViewStats> stats = findStats(start, TimeBounds.exclusiveEnd(end), uris, unique);
+        stats.sort(Comparator.comparing(ViewStats::getHits).reversed());
+        return stats;
+    }
+
+    @Override
+    public StatsStream streamStats(LocalDateTime from, LocalDateTime to, List<String> uris, boolean unique,
+                                   Integer limit, int offset) {
+        List<ViewStats> stats = findStats(from, to, uris, unique);
+        stats.sort(ORDER);
+        List<ViewStats> page = stats.subList(Math.min(offset, stats.size()),
+                limit == null ? stats.size() : (int) Math.min((long) offset + limit, stats.size()));
+        return page::forEach;
+    }
+
+    @Override
+    public List<ViewStatsSeries> getSeries(LocalDateTime start, LocalDateTime end, Granularity granularity,
+                                           List<String> uris) {
+        IntPredicate uriFilter = uriFilter(uris);
+        return seriesService.getSeries(start, end, granularity, windows -> hitLog.countHits(windows, uriFilter));
+    }
+
+    @Override
+    public List<ViewStatsSeries> getSeries(List<StatsWindow> windows, List<String> uris) {
+        IntPredicate uriFilter = uriFilter(uris);
+        return seriesService.getSeries(windows, requested -> hitLog.countHits(requested, uriFilter));
+    }
+
+    @Override
+    public List<ViewStats> getTopStats(LocalDateTime start, LocalDateTime end, int limit, Boolean exact) {
+        List<ViewStats> stats = hitLog.countHits(start, TimeBounds.exclusiveEnd(end), uriId -> true);
+        stats.sort(ORDER);
+        return stats.subList(0, Math.min(limit, stats.size()));
+    }
+
+    private List<ViewStats> findStats(LocalDateTime from, LocalDateTime to, List<String> uris, boolean unique) {
+        IntPredicate uriFilter = uriFilter(uris);
+        return unique ? hitLog.countVisitors(from, to, uriFilter) : hitLog.countHits(from, to, uriFilter);
+    }
+
+    private IntPredicate uriFilter(List<String> uris) {
+        if (uris == null) {
+            return uriId -> true;
+        }
+        List<Pattern> globs = uris.stream().map(UriIndex::toRegex).collect(Collectors.toList());
+        List<String> known = hitLog.getUris();
+        BitSet matching = new BitSet(known.size());
+        for (int i = 0; i < known.size(); i++) {
+            String uri = known.get(i);
+            if (globs.stream().anyMatch(glob -> glob.matcher(uri).matches())) {
+                matching.set(i);
+            }
+        }
+        return matching::get;
+    }
+}
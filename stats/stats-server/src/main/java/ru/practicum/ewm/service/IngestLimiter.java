@@ -0,0 +1,97 @@
+package ru.practicum.ewm.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.config.AdmissionProperties;
+import ru.practicum.ewm.exceptions.IngestOverloadException;
+import ru.practicum.ewm.model.Stat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+@Component
+public class IngestLimiter {
+    private final AdmissionProperties properties;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter rejectedRequests;
+    private final Counter sampledHits;
+    private volatile double limit;
+    private long decreasedAt = System.nanoTime();
+
+    public IngestLimiter(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.limit = properties.getInitialLimit();
+        this.rejectedRequests = meterRegistry.counter("stats.admission.rejected");
+        this.sampledHits = meterRegistry.counter("stats.admission.sampled");
+        meterRegistry.gauge("stats.admission.limit", this, IngestLimiter::getLimit);
+        meterRegistry.gauge("stats.admission.in-flight", inFlight);
+    }
+
+    public double getLimit() {
+        return limit;
+    }
+
+    public void admit(List<Stat> stats, Consumer<List<Stat>> ingest) {
+        if (!properties.isEnabled()) {
+            ingest.accept(stats);
+            return;
+        }
+        int current = inFlight.incrementAndGet();
+        if (current > limit) {
+            if (!properties.isSamplingEnabled()) {
+                inFlight.decrementAndGet();
+                rejectedRequests.increment();
+                throw new IngestOverloadException("The stats server is overloaded", properties.getRetryAfter());
+            }
+            stats = sample(stats);
+            if (stats.isEmpty()) {
+                inFlight.decrementAndGet();
+                return;
+            }
+        }
+
+        long started = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            ingest.accept(stats);
+            succeeded = true;
+        } finally {
+            inFlight.decrementAndGet();
+            update(started, System.nanoTime() - started, stats.size(), succeeded, current);
+        }
+    }
+
+    private List<Stat> sample(List<Stat> stats) {
+        double rate = properties.getSamplingRate();
+        List<Stat> sampled = new ArrayList<>();
+        for (Stat stat : stats) {
+            double probability = Math.min(1, Math.max(rate, (double) stat.getWeight() / EndpointHit.MAX_WEIGHT));
+            if (ThreadLocalRandom.current().nextDouble() < probability) {
+                double weight = stat.getWeight() / probability;
+                int rounded = (int) weight + (ThreadLocalRandom.current().nextDouble() < weight % 1 ? 1 : 0);
+                stat.setWeight(Math.min(EndpointHit.MAX_WEIGHT, rounded));
+                sampled.add(stat);
+            }
+        }
+        sampledHits.increment(stats.size());
+        return sampled;
+    }
+
+    private synchronized void update(long started, long latencyNanos, int hits, boolean succeeded, int concurrency) {
+        long threshold = properties.getLatencyThreshold().toNanos()
+                + hits * properties.getHitLatencyThreshold().toNanos();
+        if (!succeeded || latencyNanos > threshold) {
+            if (started - decreasedAt >= 0) {
+                limit = Math.max(properties.getMinLimit(), limit * properties.getBackoffRatio());
+                decreasedAt = System.nanoTime();
+            }
+        } else if (concurrency * 2 >= limit) {
+            limit = Math.min(properties.getMaxLimit(), limit + 1 / limit);
+        }
+    }
+}
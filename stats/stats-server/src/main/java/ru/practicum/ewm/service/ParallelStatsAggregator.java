@@ -0,0 +1,101 @@
+package ru.practicum.ewm.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.config.ConditionalOnDatabaseEngine;
+import ru.practicum.ewm.config.ParallelProperties;
+import ru.practicum.ewm.config.PartitionProperties;
+import ru.practicum.ewm.model.StatWindow;
+import ru.practicum.ewm.repository.StatsRepository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Component
+@ConditionalOnDatabaseEngine
+@RequiredArgsConstructor
+public class ParallelStatsAggregator {
+    private final ParallelProperties properties;
+    private final PartitionProperties partitionProperties;
+    private final StatsRepository repository;
+    private ExecutorService workers;
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        AtomicInteger threads = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(properties.getParallelism(), runnable -> {
+            Thread thread = new Thread(runnable, "stats-aggregate-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+
+    public boolean isSplit(LocalDateTime from, LocalDateTime to) {
+        return properties.isEnabled() && !from.plus(properties.getSplitThreshold()).isAfter(to);
+    }
+
+    public List<ViewStats> countHits(LocalDateTime from, LocalDateTime to, List<String> uris) {
+        List<Future<List<ViewStats>>> partials = new ArrayList<>();
+        for (StatWindow chunk : split(from, to)) {
+            partials.add(workers.submit(() -> uris == null
+                    ? repository.countHits(chunk.getFrom(), chunk.getTo())
+                    : repository.countHitsByUris(chunk.getFrom(), chunk.getTo(), uris)));
+        }
+
+        ViewStatsAccumulator accumulator = new ViewStatsAccumulator();
+        try {
+            for (Future<List<ViewStats>> partial : partials) {
+                accumulator.addAll(partial.get());
+            }
+        } catch (InterruptedException e) {
+            partials.forEach(partial -> partial.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while aggregating statistics", e);
+        } catch (ExecutionException e) {
+            partials.forEach(partial -> partial.cancel(true));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        return accumulator.toSortedList();
+    }
+
+    public List<StatWindow> split(LocalDateTime from, LocalDateTime to) {
+        Duration chunk = Duration.between(from, to).dividedBy(properties.getParallelism()).withNanos(0);
+        List<StatWindow> chunks = new ArrayList<>();
+        LocalDateTime chunkFrom = from;
+        while (chunkFrom.isBefore(to)) {
+            LocalDateTime chunkTo = chunkFrom.plus(chunk);
+            if (partitionProperties.isEnabled()) {
+                LocalDateTime boundary = partitionProperties.getInterval().next(
+                        partitionProperties.getInterval().floor(chunkFrom));
+                chunkTo = boundary.isBefore(chunkTo) ? boundary : chunkTo;
+            }
+            chunkTo = chunkTo.isAfter(to) || !chunkTo.isAfter(chunkFrom) ? to : chunkTo;
+            chunks.add(new StatWindow(chunkFrom, chunkTo));
+            chunkFrom = chunkTo;
+        }
+        return chunks;
+    }
+}
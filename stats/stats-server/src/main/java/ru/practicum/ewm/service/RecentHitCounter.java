@@ -0,0 +1,192 @@
+package ru.practicum.ewm.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.config.ConditionalOnDatabaseEngine;
+import ru.practicum.ewm.config.CounterProperties;
+import ru.practicum.ewm.config.RollupProperties;
+import ru.practicum.ewm.constants.Granularity;
+import ru.practicum.ewm.model.Stat;
+import ru.practicum.ewm.model.StatRollup;
+import ru.practicum.ewm.repository.StatsRollupRepository;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+@Slf4j
+@Component
+@ConditionalOnDatabaseEngine
+@RequiredArgsConstructor
+public class RecentHitCounter implements StatsListener {
+    private final CounterProperties properties;
+    private final RollupProperties rollupProperties;
+    private final StatsRollupRepository rollupRepository;
+    private final AtomicLong coverageStart = new AtomicLong(Long.MAX_VALUE);
+    private final NavigableMap<Long, Map<CounterKey, Long>> pending = new TreeMap<>();
+    private volatile long nextPending = Long.MAX_VALUE;
+    private int pendingKeys;
+    private AtomicReferenceArray<Bucket> buckets;
+    private long windowMinutes;
+    private long lookaheadMinutes;
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        windowMinutes = properties.getWindow().toMinutes();
+        lookaheadMinutes = properties.getLookahead().toMinutes();
+        buckets = new AtomicReferenceArray<>(Math.toIntExact(windowMinutes + lookaheadMinutes));
+
+        long now = currentMinute();
+        if (!rollupProperties.isEnabled()) {
+            coverageStart.set(now + 1);
+            return;
+        }
+        List<StatRollup> rollups = rollupRepository.findBuckets(Granularity.MINUTE,
+                toTime(now - windowMinutes + 1), toTime(now + lookaheadMinutes + 1));
+        rollups.forEach(rollup -> increment(toMinute(rollup.getBucket()), rollup.getApp(), rollup.getUri(),
+                rollup.getHits()));
+        coverageStart.set(now - windowMinutes + 1);
+        log.info("Loaded {} minute buckets into the recent hit counter", rollups.size());
+    }
+
+    @Override
+    public void onStatsSaved(List<Stat> stats) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        AfterCommit.run(() -> add(stats));
+    }
+
+    public void add(List<Stat> stats) {
+        long now = currentMinute();
+        promotePending(now);
+        for (Stat stat : stats) {
+            long minute = toMinute(stat.getTimestamp());
+            if (minute > now + lookaheadMinutes) {
+                defer(minute, new CounterKey(stat.getApp(), stat.getUri()), stat.getWeight());
+            } else if (minute > now - windowMinutes) {
+                increment(minute, stat.getApp(), stat.getUri(), stat.getWeight());
+            }
+        }
+    }
+
+    public LocalDateTime getCoverageStart() {
+        promotePending(currentMinute());
+        return toTime(Math.max(coverageStart.get(), currentMinute() - windowMinutes + 1));
+    }
+
+    public LocalDateTime getCoverageEnd() {
+        return toTime(currentMinute() + lookaheadMinutes + 1);
+    }
+
+    public List<ViewStats> getStats(LocalDateTime from, LocalDateTime to, List<String> uris) {
+        Set<String> uriFilter = uris == null ? null : new HashSet<>(uris);
+        ViewStatsAccumulator accumulator = new ViewStatsAccumulator();
+        for (long minute = toMinute(from); minute < toMinute(to); minute++) {
+            Bucket bucket = buckets.get(slot(minute));
+            if (bucket == null || bucket.getMinute() != minute) {
+                continue;
+            }
+            bucket.getHits().forEach((key, hits) -> {
+                if (uriFilter == null || uriFilter.contains(key.getUri())) {
+                    accumulator.add(key.getApp(), key.getUri(), hits.sum());
+                }
+            });
+        }
+        return accumulator.toSortedList();
+    }
+
+    private void increment(long minute, String app, String uri, long hits) {
+        int slot = slot(minute);
+        Bucket bucket = buckets.get(slot);
+        while (bucket == null || bucket.getMinute() < minute) {
+            Bucket fresh = new Bucket(minute, new ConcurrentHashMap<>());
+            if (buckets.compareAndSet(slot, bucket, fresh)) {
+                bucket = fresh;
+            } else {
+                bucket = buckets.get(slot);
+            }
+        }
+        if (bucket.getMinute() == minute) {
+            bucket.getHits().computeIfAbsent(new CounterKey(app, uri), key -> new LongAdder()).add(hits);
+        }
+    }
+
+    private void defer(long minute, CounterKey key, long hits) {
+        synchronized (pending) {
+            Map<CounterKey, Long> minuteHits = pending.computeIfAbsent(minute, m -> new HashMap<>());
+            if (!minuteHits.containsKey(key)) {
+                pendingKeys++;
+            }
+            minuteHits.merge(key, hits, Long::sum);
+            while (pendingKeys > properties.getMaxPending()) {
+                Map.Entry<Long, Map<CounterKey, Long>> evicted = pending.pollLastEntry();
+                pendingKeys -= evicted.getValue().size();
+                coverageStart.accumulateAndGet(evicted.getKey() + 1, Math::max);
+                log.warn("Dropped future hits at {} from the recent hit counter", toTime(evicted.getKey()));
+            }
+            nextPending = pending.isEmpty() ? Long.MAX_VALUE : pending.firstKey();
+        }
+    }
+
+    private void promotePending(long now) {
+        if (nextPending > now + lookaheadMinutes) {
+            return;
+        }
+        synchronized (pending) {
+            while (!pending.isEmpty() && pending.firstKey() <= now + lookaheadMinutes) {
+                Map.Entry<Long, Map<CounterKey, Long>> due = pending.pollFirstEntry();
+                pendingKeys -= due.getValue().size();
+                if (due.getKey() > now - windowMinutes) {
+                    due.getValue().forEach((key, hits) -> increment(due.getKey(), key.getApp(), key.getUri(), hits));
+                }
+            }
+            nextPending = pending.isEmpty() ? Long.MAX_VALUE : pending.firstKey();
+        }
+    }
+
+    private int slot(long minute) {
+        return (int) Math.floorMod(minute, (long) buckets.length());
+    }
+
+    private static long currentMinute() {
+        return toMinute(LocalDateTime.now());
+    }
+
+    private static long toMinute(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60L);
+    }
+
+    private static LocalDateTime toTime(long minute) {
+        return LocalDateTime.ofEpochSecond(minute * 60, 0, ZoneOffset.UTC);
+    }
+
+    @Value
+    private static class Bucket {
+        long minute;
+        Map<CounterKey, LongAdder> hits;
+    }
+
+    @Value
+    private static class CounterKey {
+        String app;
+        String uri;
+    }
+}
@@ -0,0 +1,49 @@
+package ru.practicum.ewm.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.config.ConditionalOnDatabaseEngine;
+import ru.practicum.ewm.model.Stat;
+import ru.practicum.ewm.repository.StatsDictionaryRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Component
+@ConditionalOnDatabaseEngine
+@RequiredArgsConstructor
+public class StatsDictionary {
+    private final StatsDictionaryRepository dictionaryRepository;
+    private final UriIndex uriIndex;
+    private final Map<String, Integer> appIds = new ConcurrentHashMap<>();
+    private final Map<String, Integer> uriIds = new ConcurrentHashMap<>();
+
+    public void encode(List<Stat> stats) {
+        resolve(stats, Stat::getApp, appIds, dictionaryRepository::findOrCreateApps);
+        resolve(stats, Stat::getUri, uriIds, missing -> {
+            Map<String, Integer> created = dictionaryRepository.findOrCreateUris(missing);
+            uriIndex.addAll(created.keySet());
+            return created;
+        });
+        for (Stat stat : stats) {
+            stat.setAppId(appIds.get(stat.getApp()));
+            stat.setUriId(uriIds.get(stat.getUri()));
+        }
+    }
+
+    private void resolve(List<Stat> stats, Function<Stat, String> value, Map<String, Integer> ids,
+                         Function<Collection<String>, Map<String, Integer>> findOrCreate) {
+        Set<String> missing = stats.stream()
+                .map(value)
+                .filter(key -> !ids.containsKey(key))
+                .collect(Collectors.toSet());
+        if (!missing.isEmpty()) {
+            ids.putAll(findOrCreate.apply(missing));
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package ru.practicum.ewm.service;
+
+import ru.practicum.ewm.model.Stat;
+
+import java.util.List;
+
+public interface StatsListener {
+    void onStatsSaved(List<Stat> stats);
+}
@@ -0,0 +1,116 @@
+package ru.practicum.ewm.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.config.ConditionalOnDatabaseEngine;
+import ru.practicum.ewm.config.PartitionProperties;
+import ru.practicum.ewm.constants.PartitionInterval;
+import ru.practicum.ewm.model.StatPartition;
+import ru.practicum.ewm.repository.StatsPartitionRepository;
+import ru.practicum.ewm.repository.StatsRollupRepository;
+import ru.practicum.ewm.repository.StatsSketchRepository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Component
+@ConditionalOnDatabaseEngine
+@RequiredArgsConstructor
+public class StatsPartitionManager {
+    private static final String PARTITION_PREFIX = "statistics_p";
+    private final PartitionProperties properties;
+    private final StatsPartitionRepository partitionRepository;
+    private final StatsRollupRepository rollupRepository;
+    private final StatsSketchRepository sketchRepository;
+    private final StatsQueryCache queryCache;
+    private final VisitorBitmapIndex bitmapIndex;
+    private ScheduledExecutorService maintenance;
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        maintain(LocalDateTime.now());
+        long interval = properties.getMaintenanceInterval().toMillis();
+        maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "stats-partitions"));
+        maintenance.scheduleWithFixedDelay(this::maintainQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (maintenance != null) {
+            maintenance.shutdownNow();
+        }
+    }
+
+    public void maintain(LocalDateTime now) {
+        PartitionInterval interval = properties.getInterval();
+        LocalDateTime cutoff = properties.isRetentionEnabled()
+                ? interval.floor(now.minus(properties.getRetention()))
+                : null;
+        Set<String> existing = partitionRepository.findPartitions().stream()
+                .map(StatPartition::getName)
+                .collect(Collectors.toSet());
+
+        Set<LocalDateTime> starts = new TreeSet<>();
+        LocalDateTime upcoming = interval.floor(now);
+        for (int i = 0; i <= properties.getPremake(); i++) {
+            starts.add(upcoming);
+            upcoming = interval.next(upcoming);
+        }
+        partitionRepository.findDefaultStarts(interval).stream()
+                .map(interval::floor)
+                .filter(start -> cutoff == null || !start.isBefore(cutoff))
+                .forEach(starts::add);
+        for (LocalDateTime start : starts) {
+            LocalDateTime end = interval.next(start);
+            String name = PARTITION_PREFIX + interval.getSuffix().format(start);
+            if (!existing.contains(name)) {
+                partitionRepository.create(new StatPartition(name, start, end));
+                log.info("Created partition {} for [{}, {})", name, start, end);
+            }
+        }
+
+        if (cutoff != null) {
+            removeExpired(cutoff);
+        }
+    }
+
+    private void removeExpired(LocalDateTime cutoff) {
+        boolean removed = false;
+        for (StatPartition partition : partitionRepository.findPartitions()) {
+            if (!partition.getRangeEnd().isAfter(cutoff)) {
+                partitionRepository.remove(partition, properties.getRetentionPolicy());
+                log.info("Removed partition {} ({})", partition.getName(), properties.getRetentionPolicy());
+                removed = true;
+            }
+        }
+        int rows = partitionRepository.removeDefault(cutoff);
+        int rollups = rollupRepository.deleteBefore(cutoff);
+        int sketches = sketchRepository.deleteBefore(cutoff);
+        if (removed || rows + rollups + sketches > 0) {
+            bitmapIndex.prune(cutoff.toLocalDate());
+            queryCache.invalidateAll();
+            log.info("Removed {} unpartitioned rows, {} rollups and {} sketches before {}", rows, rollups, sketches,
+                    cutoff);
+        }
+    }
+
+    private void maintainQuietly() {
+        try {
+            maintain(LocalDateTime.now());
+        } catch (RuntimeException e) {
+            log.error("Failed to maintain statistics partitions", e);
+        }
+    }
+}
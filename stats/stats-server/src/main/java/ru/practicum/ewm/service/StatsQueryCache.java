@@ -0,0 +1,156 @@
+package ru.practicum.ewm.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.config.CacheProperties;
+import ru.practicum.ewm.config.ConditionalOnDatabaseEngine;
+import ru.practicum.ewm.constants.Granularity;
+import ru.practicum.ewm.model.Stat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+@Component
+@ConditionalOnDatabaseEngine
+public class StatsQueryCache implements StatsListener {
+    private static final int MAX_WRITES = 10_000;
+    private final CacheProperties properties;
+    private final Cache<QueryKey, CachedStats> cache;
+    private final Counter invalidations;
+    private final AtomicLong writeSequence = new AtomicLong();
+    private final ConcurrentNavigableMap<Long, Write> writes = new ConcurrentSkipListMap<>();
+
+    public StatsQueryCache(CacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfter(new CachedStatsExpiry())
+                .recordStats()
+                .build();
+        this.invalidations = meterRegistry.counter("stats.cache.invalidations");
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "stats");
+    }
+
+    public List<ViewStats> get(LocalDateTime start, LocalDateTime end, List<String> uris, String unique,
+                               Boolean approximate, Supplier<List<ViewStats>> query) {
+        List<String> sortedUris = uris == null ? null : new ArrayList<>(new TreeSet<>(uris));
+        QueryKey key = new QueryKey(start, end, sortedUris, unique, approximate);
+        CachedStats cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached.getStats();
+        }
+
+        long observed = writeSequence.get();
+        List<ViewStats> stats = query.get();
+        long ttl = end.isBefore(LocalDateTime.now()) ? Long.MAX_VALUE : properties.getRecentTtl().toNanos();
+        CachedStats loaded = new CachedStats(List.copyOf(stats), ttl);
+        cache.put(key, loaded);
+        if (isWrittenSince(observed, key)) {
+            cache.asMap().remove(key, loaded);
+        }
+        return stats;
+    }
+
+    @Override
+    public void onStatsSaved(List<Stat> stats) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        AfterCommit.run(() -> invalidate(stats));
+    }
+
+    public void invalidate(List<Stat> stats) {
+        if (stats.isEmpty()) {
+            return;
+        }
+        NavigableSet<LocalDateTime> buckets = new TreeSet<>();
+        stats.forEach(stat -> buckets.add(Granularity.MINUTE.floor(stat.getTimestamp())));
+
+        record(new Write(buckets.first(), buckets.last()));
+        cache.asMap().keySet().removeIf(key -> {
+            LocalDateTime bucket = buckets.ceiling(Granularity.MINUTE.floor(key.getStart()));
+            boolean affected = bucket != null && !bucket.isAfter(key.getEnd());
+            if (affected) {
+                invalidations.increment();
+            }
+            return affected;
+        });
+    }
+
+    public void invalidateAll() {
+        record(new Write(LocalDateTime.MIN, LocalDateTime.MAX));
+        cache.invalidateAll();
+    }
+
+    private void record(Write write) {
+        long sequence = writeSequence.incrementAndGet();
+        writes.put(sequence, write);
+        writes.headMap(sequence - MAX_WRITES).clear();
+    }
+
+    private boolean isWrittenSince(long observed, QueryKey key) {
+        if (writeSequence.get() == observed) {
+            return false;
+        }
+        Map.Entry<Long, Write> oldest = writes.firstEntry();
+        if (oldest == null || oldest.getKey() > observed + 1) {
+            return true;
+        }
+        LocalDateTime from = Granularity.MINUTE.floor(key.getStart());
+        return writes.tailMap(observed, false).values().stream()
+                .anyMatch(write -> !write.getFrom().isAfter(key.getEnd()) && !write.getTo().isBefore(from));
+    }
+
+    @Value
+    private static class QueryKey {
+        LocalDateTime start;
+        LocalDateTime end;
+        List<String> uris;
+        String unique;
+        Boolean approximate;
+    }
+
+    @Value
+    private static class Write {
+        LocalDateTime from;
+        LocalDateTime to;
+    }
+
+    @Value
+    private static class CachedStats {
+        List<ViewStats> stats;
+        long ttlNanos;
+    }
+
+    private static class CachedStatsExpiry implements Expiry<QueryKey, CachedStats> {
+        @Override
+        public long expireAfterCreate(QueryKey key, CachedStats value, long currentTime) {
+            return value.getTtlNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(QueryKey key, CachedStats value, long currentTime, long currentDuration) {
+            return value.getTtlNanos();
+        }
+
+        @Override
+        public long expireAfterRead(QueryKey key, CachedStats value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
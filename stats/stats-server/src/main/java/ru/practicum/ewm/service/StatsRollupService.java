@@ -0,0 +1,88 @@
+package ru.practicum.ewm.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.config.ConditionalOnDatabaseEngine;
+import ru.practicum.ewm.config.RollupProperties;
+import ru.practicum.ewm.constants.Granularity;
+import ru.practicum.ewm.model.Stat;
+import ru.practicum.ewm.model.StatRollup;
+import ru.practicum.ewm.repository.StatsRepository;
+import ru.practicum.ewm.repository.StatsRollupRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@ConditionalOnDatabaseEngine
+@RequiredArgsConstructor
+public class StatsRollupService implements StatsListener {
+    private static final Granularity[] COARSEST_FIRST = {Granularity.DAY, Granularity.HOUR, Granularity.MINUTE};
+    private static final Comparator<StatRollup> LOCK_ORDER = Comparator
+            .comparing(StatRollup::getGranularity)
+            .thenComparing(StatRollup::getBucket)
+            .thenComparing(StatRollup::getApp)
+            .thenComparing(StatRollup::getUri);
+    private final StatsRollupRepository rollupRepository;
+    private final StatsRepository repository;
+    private final RollupProperties properties;
+
+    @Override
+    public void onStatsSaved(List<Stat> stats) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+
+        Map<StatRollup, StatRollup> rollups = new LinkedHashMap<>();
+        for (Stat stat : stats) {
+            for (Granularity granularity : Granularity.values()) {
+                StatRollup rollup = new StatRollup(granularity, granularity.floor(stat.getTimestamp()),
+                        stat.getApp(), stat.getUri(), (long) stat.getWeight());
+                rollups.merge(rollup, rollup, (existing, added) -> {
+                    existing.setHits(existing.getHits() + added.getHits());
+                    return existing;
+                });
+            }
+        }
+
+        List<StatRollup> ordered = new ArrayList<>(rollups.values());
+        ordered.sort(LOCK_ORDER);
+        rollupRepository.increment(ordered);
+    }
+
+    public List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        return countHits(start, TimeBounds.exclusiveEnd(end), uris);
+    }
+
+    public List<ViewStats> countHits(LocalDateTime from, LocalDateTime to, List<String> uris) {
+        ViewStatsAccumulator accumulator = new ViewStatsAccumulator();
+        collect(from, to, uris, 0, accumulator);
+        return accumulator.toSortedList();
+    }
+
+    private void collect(LocalDateTime from, LocalDateTime to, List<String> uris, int level,
+                         ViewStatsAccumulator accumulator) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        for (int i = level; i < COARSEST_FIRST.length; i++) {
+            Granularity granularity = COARSEST_FIRST[i];
+            LocalDateTime firstBucket = granularity.ceil(from);
+            LocalDateTime lastBucket = granularity.floor(to);
+            if (firstBucket.isBefore(lastBucket)) {
+                accumulator.addAll(rollupRepository.sumHits(granularity, firstBucket, lastBucket, uris));
+                collect(from, firstBucket, uris, i + 1, accumulator);
+                collect(lastBucket, to, uris, i + 1, accumulator);
+                return;
+            }
+        }
+        accumulator.addAll(uris == null
+                ? repository.countHits(from, to)
+                : repository.countHitsByUris(from, to, uris));
+    }
+}
@@ -0,0 +1,178 @@
+package ru.practicum.ewm.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+import ru.practicum.ewm.StatsWindow;
+import ru.practicum.ewm.ViewStatsPoint;
+import ru.practicum.ewm.ViewStatsSeries;
+import ru.practicum.ewm.config.RollupProperties;
+import ru.practicum.ewm.config.SeriesProperties;
+import ru.practicum.ewm.constants.Granularity;
+import ru.practicum.ewm.exceptions.WrongParamSeriesException;
+import ru.practicum.ewm.model.StatRollup;
+import ru.practicum.ewm.model.StatWindow;
+import ru.practicum.ewm.model.StatWindowHits;
+import ru.practicum.ewm.repository.StatsRollupRepository;
+import ru.practicum.ewm.repository.StatsSeriesRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+@Service
+@RequiredArgsConstructor
+public class StatsSeriesService {
+    private final ObjectProvider<StatsSeriesRepository> seriesRepository;
+    private final ObjectProvider<StatsRollupRepository> rollupRepository;
+    private final RollupProperties rollupProperties;
+    private final SeriesProperties properties;
+
+    public List<ViewStatsSeries> getSeries(List<StatsWindow> windows, List<String> uris) {
+        return getSeries(windows, statWindows -> seriesRepository.getObject().countHits(statWindows, uris));
+    }
+
+    public List<ViewStatsSeries> getSeries(List<StatsWindow> windows,
+                                           Function<List<StatWindow>, List<StatWindowHits>> counter) {
+        checkSize(windows.size());
+        List<Window> series = new ArrayList<>();
+        for (StatsWindow window : windows) {
+            if (window.getEnd().isBefore(window.getStart())) {
+                throw new WrongParamSeriesException("The window end must not be before its start");
+            }
+            series.add(new Window(window.getStart(), window.getEnd(), window.getStart(),
+                    TimeBounds.exclusiveEnd(window.getEnd())));
+        }
+
+        SeriesAccumulator accumulator = new SeriesAccumulator(series);
+        accumulator.addAll(counter.apply(toStatWindows(series)));
+        return accumulator.toSortedList();
+    }
+
+    public List<ViewStatsSeries> getSeries(LocalDateTime start, LocalDateTime end, Granularity granularity,
+                                           Function<List<StatWindow>, List<StatWindowHits>> counter) {
+        List<Window> series = toBuckets(start, end, granularity);
+        SeriesAccumulator accumulator = new SeriesAccumulator(series);
+        accumulator.addAll(counter.apply(toStatWindows(series)));
+        return accumulator.toSortedList();
+    }
+
+    public List<ViewStatsSeries> getSeries(LocalDateTime start, LocalDateTime end, Granularity granularity,
+                                           List<String> uris) {
+        List<Window> series = toBuckets(start, end, granularity);
+        SeriesAccumulator accumulator = new SeriesAccumulator(series);
+        List<Window> partial = new ArrayList<>();
+        List<Integer> partialIndexes = new ArrayList<>();
+        Map<LocalDateTime, Integer> full = new HashMap<>();
+        for (int i = 0; i < series.size(); i++) {
+            Window window = series.get(i);
+            boolean aligned = granularity.floor(window.getFrom()).equals(window.getFrom())
+                    && window.getTo().equals(window.getFrom().plus(1, granularity.getUnit()));
+            if (rollupProperties.isEnabled() && aligned) {
+                full.put(window.getFrom(), i);
+            } else {
+                partial.add(window);
+                partialIndexes.add(i);
+            }
+        }
+
+        if (!full.isEmpty()) {
+            LocalDateTime firstFull = full.keySet().stream().min(Comparator.naturalOrder()).orElseThrow();
+            LocalDateTime lastFull = full.keySet().stream().max(Comparator.naturalOrder()).orElseThrow();
+            for (StatRollup rollup : rollupRepository.getObject().findBuckets(granularity, firstFull,
+                    lastFull.plus(1, granularity.getUnit()), uris)) {
+                accumulator.add(full.get(rollup.getBucket()), rollup.getApp(), rollup.getUri(), rollup.getHits());
+            }
+        }
+        if (!partial.isEmpty()) {
+            for (StatWindowHits hits : seriesRepository.getObject().countHits(toStatWindows(partial), uris)) {
+                accumulator.add(partialIndexes.get(hits.getWindow()), hits.getApp(), hits.getUri(), hits.getHits());
+            }
+        }
+        return accumulator.toSortedList();
+    }
+
+    private List<Window> toBuckets(LocalDateTime start, LocalDateTime end, Granularity granularity) {
+        if (end.isBefore(start)) {
+            throw new WrongParamSeriesException("The end must not be before the start");
+        }
+        LocalDateTime to = TimeBounds.exclusiveEnd(end);
+        List<Window> series = new ArrayList<>();
+        for (LocalDateTime bucket = granularity.floor(start); bucket.isBefore(to);
+             bucket = bucket.plus(1, granularity.getUnit())) {
+            checkSize(series.size() + 1);
+            LocalDateTime next = bucket.plus(1, granularity.getUnit());
+            LocalDateTime from = bucket.isBefore(start) ? start : bucket;
+            series.add(new Window(from, next.isAfter(to) ? end : next.minusSeconds(1), from,
+                    next.isAfter(to) ? to : next));
+        }
+        return series;
+    }
+
+    private void checkSize(int windows) {
+        if (windows > properties.getMaxWindows()) {
+            throw new WrongParamSeriesException("The number of windows must not exceed " + properties.getMaxWindows());
+        }
+    }
+
+    private List<StatWindow> toStatWindows(List<Window> windows) {
+        List<StatWindow> statWindows = new ArrayList<>();
+        windows.forEach(window -> statWindows.add(new StatWindow(window.getFrom(), window.getTo())));
+        return statWindows;
+    }
+
+    @Value
+    private static class Window {
+        LocalDateTime start;
+        LocalDateTime end;
+        LocalDateTime from;
+        LocalDateTime to;
+    }
+
+    @Value
+    private static class SeriesKey {
+        String app;
+        String uri;
+    }
+
+    private static class SeriesAccumulator {
+        private final List<Window> windows;
+        private final Map<SeriesKey, Map<Integer, Long>> hitsBySeries = new HashMap<>();
+
+        SeriesAccumulator(List<Window> windows) {
+            this.windows = windows;
+        }
+
+        void add(int window, String app, String uri, long hits) {
+            hitsBySeries.computeIfAbsent(new SeriesKey(app, uri), key -> new TreeMap<>())
+                    .merge(window, hits, Long::sum);
+        }
+
+        void addAll(List<StatWindowHits> hits) {
+            hits.forEach(windowHits -> add(windowHits.getWindow(), windowHits.getApp(), windowHits.getUri(),
+                    windowHits.getHits()));
+        }
+
+        List<ViewStatsSeries> toSortedList() {
+            List<ViewStatsSeries> series = new ArrayList<>();
+            hitsBySeries.forEach((key, hitsByWindow) -> {
+                List<ViewStatsPoint> points = new ArrayList<>();
+                long total = 0;
+                for (Map.Entry<Integer, Long> entry : hitsByWindow.entrySet()) {
+                    Window window = windows.get(entry.getKey());
+                    points.add(new ViewStatsPoint(window.getStart(), window.getEnd(), entry.getValue()));
+                    total += entry.getValue();
+                }
+                series.add(new ViewStatsSeries(key.getApp(), key.getUri(), total, points));
+            });
+            series.sort(Comparator.comparing(ViewStatsSeries::getHits).reversed());
+            return series;
+        }
+    }
+}
@@ -1,12 +1,26 @@
 package ru.practicum.ewm.service;
 
+import ru.practicum.ewm.EndpointHitBatchResult;
+import ru.practicum.ewm.StatsSeriesRequest;
 import ru.practicum.ewm.ViewStats;
 import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.ViewStatsSeries;
 
 import java.util.List;
 
 public interface StatsService {
     void saveDataRequest(EndpointHit endpointHit);
 
-    List<ViewStats> getStats(String start, String end, List<String> uris, String unique);
+    EndpointHitBatchResult saveDataRequests(List<EndpointHit> endpointHits);
+
+    List<ViewStats> getStats(String start, String end, List<String> uris, String unique, Boolean approximate,
+                             Boolean groupByPattern);
+
+    StatsStream streamStats(String start, String end, List<String> uris, String unique, Integer limit, Integer offset);
+
+    List<ViewStatsSeries> getSeries(String start, String end, String granularity, List<String> uris);
+
+    List<ViewStatsSeries> getSeries(StatsSeriesRequest request);
+
+    List<ViewStats> getTopStats(String start, String end, Integer limit, Boolean exact);
 }
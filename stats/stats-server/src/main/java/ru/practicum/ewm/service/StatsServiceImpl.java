@@ -2,52 +2,121 @@ package ru.practicum.ewm.service;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import ru.practicum.ewm.EndpointHitBatchResult;
+import ru.practicum.ewm.EndpointHitError;
+import ru.practicum.ewm.StatsSeriesRequest;
+import ru.practicum.ewm.ViewStatsSeries;
+import ru.practicum.ewm.constants.Granularity;
+import ru.practicum.ewm.exceptions.WrongParamLimitException;
+import ru.practicum.ewm.exceptions.WrongParamSeriesException;
 import ru.practicum.ewm.exceptions.WrongParamUniqueException;
 import ru.practicum.ewm.ViewStats;
 import ru.practicum.ewm.EndpointHit;
 import ru.practicum.ewm.mapper.StatsMapper;
 import ru.practicum.ewm.model.Stat;
-import ru.practicum.ewm.repository.StatsRepository;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 @Service("statsServiceImpl")
 @RequiredArgsConstructor
 public class StatsServiceImpl implements StatsService {
-    private final StatsRepository repository;
+    private final StatsStorage storage;
     private final StatsMapper mapper;
+    private final EndpointHitValidator validator;
+    private final HitDeduplicator deduplicator;
+    private final IngestLimiter limiter;
 
     @Override
     public void saveDataRequest(EndpointHit endpointHit) {
-        Stat stat = mapper.toModel(endpointHit);
-        repository.save(stat);
+        deduplicator.save(List.of(endpointHit), accepted -> limiter.admit(toModels(accepted), storage::write));
     }
 
     @Override
-    public List<ViewStats> getStats(String start, String end, List<String> uris, String unique) {
+    public EndpointHitBatchResult saveDataRequests(List<EndpointHit> endpointHits) {
+        List<EndpointHit> valid = new ArrayList<>();
+        List<EndpointHitError> errors = new ArrayList<>();
+
+        for (int i = 0; i < endpointHits.size(); i++) {
+            Map<String, String> violations = validator.validate(endpointHits.get(i));
+            if (violations.isEmpty()) {
+                valid.add(endpointHits.get(i));
+            } else {
+                errors.add(new EndpointHitError(i, violations));
+            }
+        }
+
+        deduplicator.save(valid, accepted -> limiter.admit(toModels(accepted), storage::write));
+        return new EndpointHitBatchResult(valid.size(), errors.size(), errors);
+    }
+
+    @Override
+    public List<ViewStats> getStats(String start, String end, List<String> uris, String unique, Boolean approximate,
+                                    Boolean groupByPattern) {
         LocalDateTime timeStart = getTime(start);
         LocalDateTime timeEnd = getTime(end);
+        boolean grouped = Boolean.TRUE.equals(groupByPattern) && uris != null;
+        if (grouped && !unique.equals("false")) {
+            throw new WrongParamUniqueException("Unique hits cannot be grouped by pattern");
+        }
 
-        boolean allStats = uris == null && unique.equals("false");
-        boolean allUnique = uris == null && unique.equals("true");
-        boolean allUniqueByUris = unique.equals("true");
-        boolean allByUris = unique.equals("false");
+        List<ViewStats> stats = storage.getStats(timeStart, timeEnd, uris, isUnique(unique), approximate);
+        return grouped ? UriIndex.groupByPattern(uris, stats) : stats;
+    }
 
-        if (allStats) {
-            return repository.findALLStats(timeStart, timeEnd);
+    @Override
+    public StatsStream streamStats(String start, String end, List<String> uris, String unique,
+                                   Integer limit, Integer offset) {
+        if (limit != null && limit < 1) {
+            throw new WrongParamLimitException("The limit must be positive");
         }
-        if (allUnique) {
-            return repository.findALLStatsWithUniqueIp(timeStart, timeEnd);
+        if (offset == null || offset < 0) {
+            throw new WrongParamLimitException("The offset must not be negative");
         }
-        if (allUniqueByUris) {
-            return repository.findStatsWithUniqueIp(timeStart, timeEnd, uris);
+        boolean distinct = isUnique(unique);
+        return storage.streamStats(getTime(start), TimeBounds.exclusiveEnd(getTime(end)), uris, distinct, limit,
+                offset);
+    }
+
+    @Override
+    public List<ViewStatsSeries> getSeries(String start, String end, String granularity, List<String> uris) {
+        Granularity bucket;
+        try {
+            bucket = Granularity.valueOf(granularity.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new WrongParamSeriesException("The wrong param of the granularity");
         }
-        if (allByUris) {
-            return repository.findStatsByUriList(timeStart, timeEnd, uris);
+        return storage.getSeries(getTime(start), getTime(end), bucket, uris);
+    }
+
+    @Override
+    public List<ViewStatsSeries> getSeries(StatsSeriesRequest request) {
+        return storage.getSeries(request.getWindows(), request.getUris());
+    }
+
+    @Override
+    public List<ViewStats> getTopStats(String start, String end, Integer limit, Boolean exact) {
+        if (limit == null || limit < 1) {
+            throw new WrongParamLimitException("The limit must be positive");
         }
-        throw new WrongParamUniqueException("The wrong param of the unique");
+        return storage.getTopStats(getTime(start), getTime(end), limit, exact);
+    }
+
+    private boolean isUnique(String unique) {
+        if (!unique.equals("true") && !unique.equals("false")) {
+            throw new WrongParamUniqueException("The wrong param of the unique");
+        }
+        return unique.equals("true");
+    }
+
+    private List<Stat> toModels(List<EndpointHit> endpointHits) {
+        List<Stat> stats = new ArrayList<>(endpointHits.size());
+        endpointHits.forEach(endpointHit -> stats.add(mapper.toModel(endpointHit)));
+        return stats;
     }
 
     private LocalDateTime getTime(String time) {
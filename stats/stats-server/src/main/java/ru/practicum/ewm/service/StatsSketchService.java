@@ -0,0 +1,109 @@
+package ru.practicum.ewm.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import org.springframework.stereotype.Service;
+import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.config.ConditionalOnDatabaseEngine;
+import ru.practicum.ewm.config.SketchProperties;
+import ru.practicum.ewm.constants.Granularity;
+import ru.practicum.ewm.model.Stat;
+import ru.practicum.ewm.model.StatSketch;
+import ru.practicum.ewm.model.StatVisitor;
+import ru.practicum.ewm.repository.StatsRepository;
+import ru.practicum.ewm.repository.StatsSketchRepository;
+import ru.practicum.ewm.sketch.HyperLogLog;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Service
+@ConditionalOnDatabaseEngine
+@RequiredArgsConstructor
+public class StatsSketchService implements StatsListener {
+    private static final Comparator<SketchKey> LOCK_ORDER = Comparator
+            .comparing(SketchKey::getBucket)
+            .thenComparing(SketchKey::getApp)
+            .thenComparing(SketchKey::getUri);
+    private final StatsSketchRepository sketchRepository;
+    private final StatsRepository repository;
+    private final SketchProperties properties;
+
+    @Override
+    public void onStatsSaved(List<Stat> stats) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+
+        Map<SketchKey, List<String>> ipsByKey = new TreeMap<>(LOCK_ORDER);
+        for (Stat stat : stats) {
+            SketchKey key = new SketchKey(Granularity.DAY.floor(stat.getTimestamp()), stat.getApp(), stat.getUri());
+            ipsByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(stat.getIp());
+        }
+
+        byte[] empty = new HyperLogLog(properties.getPrecision()).toBytes();
+        List<StatSketch> created = new ArrayList<>();
+        ipsByKey.keySet().forEach(key -> created.add(new StatSketch(key.getBucket(), key.getApp(), key.getUri(), empty)));
+        sketchRepository.insertIfAbsent(created);
+
+        List<StatSketch> updated = new ArrayList<>();
+        ipsByKey.forEach((key, ips) -> {
+            HyperLogLog sketch = HyperLogLog.fromBytes(
+                    sketchRepository.findForUpdate(key.getBucket(), key.getApp(), key.getUri()));
+            ips.forEach(sketch::add);
+            updated.add(new StatSketch(key.getBucket(), key.getApp(), key.getUri(), sketch.toBytes()));
+        });
+        sketchRepository.update(updated);
+    }
+
+    public List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        Map<String, Map<String, HyperLogLog>> sketches = new HashMap<>();
+        LocalDateTime to = TimeBounds.exclusiveEnd(end);
+        LocalDateTime firstDay = Granularity.DAY.ceil(start);
+        LocalDateTime lastDay = Granularity.DAY.floor(to);
+
+        if (firstDay.isBefore(lastDay)) {
+            for (StatSketch stored : sketchRepository.findSketches(firstDay, lastDay, uris)) {
+                HyperLogLog sketch = HyperLogLog.fromBytes(stored.getSketch());
+                sketches.computeIfAbsent(stored.getApp(), app -> new HashMap<>())
+                        .merge(stored.getUri(), sketch, HyperLogLog::union);
+            }
+            addVisitors(sketches, start, firstDay, uris);
+            addVisitors(sketches, lastDay, to, uris);
+        } else {
+            addVisitors(sketches, start, to, uris);
+        }
+
+        ViewStatsAccumulator accumulator = new ViewStatsAccumulator();
+        sketches.forEach((app, sketchesByUri) ->
+                sketchesByUri.forEach((uri, sketch) -> accumulator.add(app, uri, sketch.cardinality())));
+        return accumulator.toSortedList();
+    }
+
+    private void addVisitors(Map<String, Map<String, HyperLogLog>> sketches,
+                             LocalDateTime from, LocalDateTime to, List<String> uris) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        List<StatVisitor> visitors = uris == null
+                ? repository.findVisitors(from, to)
+                : repository.findVisitorsByUris(from, to, uris);
+        for (StatVisitor visitor : visitors) {
+            sketches.computeIfAbsent(visitor.getApp(), app -> new HashMap<>())
+                    .computeIfAbsent(visitor.getUri(), uri -> new HyperLogLog(properties.getPrecision()))
+                    .add(visitor.getIp());
+        }
+    }
+
+    @Value
+    private static class SketchKey {
+        LocalDateTime bucket;
+        String app;
+        String uri;
+    }
+}
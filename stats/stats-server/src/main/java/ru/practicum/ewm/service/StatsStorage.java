@@ -0,0 +1,26 @@
+package ru.practicum.ewm.service;
+
+import ru.practicum.ewm.StatsWindow;
+import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.ViewStatsSeries;
+import ru.practicum.ewm.constants.Granularity;
+import ru.practicum.ewm.model.Stat;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface StatsStorage {
+    void write(List<Stat> stats);
+
+    List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                             Boolean approximate);
+
+    StatsStream streamStats(LocalDateTime from, LocalDateTime to, List<String> uris, boolean unique, Integer limit,
+                            int offset);
+
+    List<ViewStatsSeries> getSeries(LocalDateTime start, LocalDateTime end, Granularity granularity, List<String> uris);
+
+    List<ViewStatsSeries> getSeries(List<StatsWindow> windows, List<String> uris);
+
+    List<ViewStats> getTopStats(LocalDateTime start, LocalDateTime end, int limit, Boolean exact);
+}
@@ -0,0 +1,10 @@
+package ru.practicum.ewm.service;
+
+import ru.practicum.ewm.ViewStats;
+
+import java.util.function.Consumer;
+
+@FunctionalInterface
+public interface StatsStream {
+    void forEach(Consumer<ViewStats> action);
+}
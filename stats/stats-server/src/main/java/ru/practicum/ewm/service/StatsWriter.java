@@ -0,0 +1,41 @@
+package ru.practicum.ewm.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.ewm.config.ConditionalOnDatabaseEngine;
+import ru.practicum.ewm.model.Stat;
+import ru.practicum.ewm.repository.StatsRepository;
+
+import java.util.List;
+
+@Component
+@ConditionalOnDatabaseEngine
+public class StatsWriter {
+    private final StatsRepository repository;
+    private final StatsDictionary dictionary;
+    private final List<StatsListener> listeners;
+    private final Counter savedHits;
+
+    public StatsWriter(StatsRepository repository,
+                       StatsDictionary dictionary,
+                       List<StatsListener> listeners,
+                       MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.dictionary = dictionary;
+        this.listeners = listeners;
+        this.savedHits = meterRegistry.counter("stats.hits.saved");
+    }
+
+    @Transactional
+    public void write(List<Stat> stats) {
+        if (stats.isEmpty()) {
+            return;
+        }
+        dictionary.encode(stats);
+        repository.saveAll(stats);
+        listeners.forEach(listener -> listener.onStatsSaved(stats));
+        savedHits.increment(stats.size());
+    }
+}
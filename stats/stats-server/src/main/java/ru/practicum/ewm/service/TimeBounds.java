@@ -0,0 +1,13 @@
+package ru.practicum.ewm.service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+final class TimeBounds {
+    private TimeBounds() {
+    }
+
+    static LocalDateTime exclusiveEnd(LocalDateTime end) {
+        return end.truncatedTo(ChronoUnit.MICROS).plus(1, ChronoUnit.MICROS);
+    }
+}
@@ -0,0 +1,142 @@
+package ru.practicum.ewm.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.config.ConditionalOnDatabaseEngine;
+import ru.practicum.ewm.config.RollupProperties;
+import ru.practicum.ewm.config.TopProperties;
+import ru.practicum.ewm.constants.Granularity;
+import ru.practicum.ewm.model.Stat;
+import ru.practicum.ewm.model.StatRollup;
+import ru.practicum.ewm.repository.StatsRollupRepository;
+import ru.practicum.ewm.sketch.SpaceSaving;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+@ConditionalOnDatabaseEngine
+@RequiredArgsConstructor
+public class TopHitsService implements StatsListener {
+    private final TopProperties properties;
+    private final RollupProperties rollupProperties;
+    private final StatsRollupRepository rollupRepository;
+    private final ConcurrentNavigableMap<LocalDateTime, SpaceSaving<TopKey>> summaries = new ConcurrentSkipListMap<>();
+    private final NavigableSet<LocalDateTime> skipped = new TreeSet<>();
+    private volatile LocalDateTime coverageStart = LocalDateTime.MAX;
+    private volatile LocalDateTime skippedFrom = LocalDateTime.MAX;
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (!rollupProperties.isEnabled()) {
+            coverageStart = Granularity.HOUR.ceil(now);
+            return;
+        }
+        LocalDateTime from = Granularity.HOUR.floor(now.minus(properties.getWindow()));
+        List<StatRollup> rollups = rollupRepository.findBucketsSince(Granularity.HOUR, from);
+        LocalDateTime horizon = now.plus(properties.getLookahead());
+        rollups.forEach(rollup -> offerUntil(horizon, rollup.getBucket(), rollup.getApp(), rollup.getUri(),
+                rollup.getHits()));
+        coverageStart = from;
+        log.info("Loaded {} hour buckets into the top hits summaries", rollups.size());
+    }
+
+    @Override
+    public void onStatsSaved(List<Stat> stats) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        AfterCommit.run(() -> add(stats));
+    }
+
+    public void add(List<Stat> stats) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expired = Granularity.HOUR.floor(now.minus(properties.getWindow()));
+        summaries.headMap(expired).clear();
+        if (coverageStart.isBefore(expired)) {
+            coverageStart = expired;
+        }
+        LocalDateTime horizon = now.plus(properties.getLookahead());
+        for (Stat stat : stats) {
+            LocalDateTime bucket = Granularity.HOUR.floor(stat.getTimestamp());
+            if (!bucket.isBefore(coverageStart)) {
+                offerUntil(horizon, bucket, stat.getApp(), stat.getUri(), stat.getWeight());
+            }
+        }
+    }
+
+    public LocalDateTime getCoverageStart() {
+        return coverageStart;
+    }
+
+    public boolean isComplete(LocalDateTime from, LocalDateTime to) {
+        if (skippedFrom.isBefore(to)) {
+            return false;
+        }
+        synchronized (skipped) {
+            LocalDateTime first = skipped.ceiling(from);
+            return first == null || !first.isBefore(to);
+        }
+    }
+
+    public List<ViewStats> getTop(LocalDateTime from, LocalDateTime to, List<ViewStats> edges, int limit) {
+        SpaceSaving<TopKey> window = new SpaceSaving<>(properties.getCapacity());
+        for (SpaceSaving<TopKey> summary : summaries.subMap(from, to).values()) {
+            synchronized (summary) {
+                window.merge(summary);
+            }
+        }
+        edges.forEach(stats -> window.offer(new TopKey(stats.getApp(), stats.getUri()), stats.getHits()));
+
+        return window.top(limit).stream()
+                .map(counter -> new ViewStats(counter.getKey().getApp(), counter.getKey().getUri(), counter.getCount()))
+                .collect(Collectors.toList());
+    }
+
+    private void offerUntil(LocalDateTime horizon, LocalDateTime bucket, String app, String uri, long hits) {
+        if (bucket.isAfter(horizon)) {
+            skip(bucket);
+        } else {
+            offer(bucket, app, uri, hits);
+        }
+    }
+
+    private void skip(LocalDateTime bucket) {
+        synchronized (skipped) {
+            skipped.headSet(coverageStart).clear();
+            if (skipped.size() < properties.getMaxSkippedHours()) {
+                skipped.add(bucket);
+            } else if (bucket.isBefore(skippedFrom)) {
+                skippedFrom = bucket;
+            }
+        }
+    }
+
+    private void offer(LocalDateTime bucket, String app, String uri, long hits) {
+        SpaceSaving<TopKey> summary = summaries.computeIfAbsent(bucket,
+                key -> new SpaceSaving<>(properties.getCapacity()));
+        synchronized (summary) {
+            summary.offer(new TopKey(app, uri), hits);
+        }
+    }
+
+    @Value
+    private static class TopKey {
+        String app;
+        String uri;
+    }
+}
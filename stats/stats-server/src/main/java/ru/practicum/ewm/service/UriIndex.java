@@ -0,0 +1,128 @@
+package ru.practicum.ewm.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.config.ConditionalOnDatabaseEngine;
+import ru.practicum.ewm.config.UriIndexProperties;
+import ru.practicum.ewm.exceptions.WrongParamUriException;
+import ru.practicum.ewm.repository.StatsDictionaryRepository;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.regex.Pattern;
+
+@Component
+@ConditionalOnDatabaseEngine
+@RequiredArgsConstructor
+public class UriIndex {
+    private static final char WILDCARD = '*';
+    private final StatsDictionaryRepository dictionaryRepository;
+    private final UriIndexProperties properties;
+    private final NavigableSet<String> uris = new ConcurrentSkipListSet<>();
+    private int lastId;
+    private volatile long refreshedAt;
+    private volatile long reloadedAt;
+
+    @PostConstruct
+    public synchronized void load() {
+        Map<Integer, String> loaded = dictionaryRepository.findAllUris();
+        uris.addAll(loaded.values());
+        uris.retainAll(new HashSet<>(loaded.values()));
+        lastId = loaded.keySet().stream().max(Integer::compare).orElse(0);
+        reloadedAt = System.nanoTime();
+        refreshedAt = reloadedAt;
+    }
+
+    public void refresh() {
+        if (System.nanoTime() - refreshedAt < properties.getRefreshInterval().toNanos()) {
+            return;
+        }
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (now - reloadedAt >= properties.getReloadInterval().toNanos()) {
+                load();
+            } else if (now - refreshedAt >= properties.getRefreshInterval().toNanos()) {
+                Map<Integer, String> added = dictionaryRepository.findUrisAfter(lastId);
+                uris.addAll(added.values());
+                lastId = added.keySet().stream().max(Integer::compare).orElse(lastId);
+                refreshedAt = now;
+            }
+        }
+    }
+
+    public void addAll(Collection<String> added) {
+        uris.addAll(added);
+    }
+
+    public List<String> expand(List<String> patterns) {
+        if (patterns == null) {
+            return null;
+        }
+        if (patterns.stream().anyMatch(UriIndex::isPattern)) {
+            refresh();
+        }
+        Set<String> expanded = new LinkedHashSet<>();
+        for (String pattern : patterns) {
+            if (!isPattern(pattern)) {
+                expanded.add(pattern);
+                continue;
+            }
+            Pattern glob = toRegex(pattern);
+            for (String uri : withPrefix(pattern.substring(0, pattern.indexOf(WILDCARD)))) {
+                if (glob.matcher(uri).matches()) {
+                    expanded.add(uri);
+                }
+                if (expanded.size() > properties.getMaxExpansion()) {
+                    throw new WrongParamUriException("The uris match more than "
+                            + properties.getMaxExpansion() + " pages");
+                }
+            }
+        }
+        return new ArrayList<>(expanded);
+    }
+
+    public static List<ViewStats> groupByPattern(List<String> patterns, List<ViewStats> stats) {
+        Map<String, Pattern> globs = new LinkedHashMap<>();
+        patterns.forEach(pattern -> globs.put(pattern, toRegex(pattern)));
+
+        ViewStatsAccumulator accumulator = new ViewStatsAccumulator();
+        for (ViewStats viewStats : stats) {
+            globs.entrySet().stream()
+                    .filter(glob -> glob.getValue().matcher(viewStats.getUri()).matches())
+                    .findFirst()
+                    .ifPresent(glob -> accumulator.add(viewStats.getApp(), glob.getKey(), viewStats.getHits()));
+        }
+        return accumulator.toSortedList();
+    }
+
+    static boolean isPattern(String uri) {
+        return uri.indexOf(WILDCARD) >= 0;
+    }
+
+    private NavigableSet<String> withPrefix(String prefix) {
+        if (prefix.isEmpty()) {
+            return uris;
+        }
+        return uris.subSet(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    static Pattern toRegex(String pattern) {
+        StringBuilder regex = new StringBuilder();
+        int from = 0;
+        for (int i = pattern.indexOf(WILDCARD); i >= 0; i = pattern.indexOf(WILDCARD, from)) {
+            regex.append(Pattern.quote(pattern.substring(from, i))).append(".*");
+            from = i + 1;
+        }
+        return Pattern.compile(regex.append(Pattern.quote(pattern.substring(from))).toString());
+    }
+}
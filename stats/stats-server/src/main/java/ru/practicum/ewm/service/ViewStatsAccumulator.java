@@ -0,0 +1,31 @@
+package ru.practicum.ewm.service;
+
+import ru.practicum.ewm.ViewStats;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ViewStatsAccumulator {
+    private final Map<String, Map<String, Long>> hitsByAppAndUri = new HashMap<>();
+
+    public void add(String app, String uri, long hits) {
+        hitsByAppAndUri
+                .computeIfAbsent(app, key -> new HashMap<>())
+                .merge(uri, hits, Long::sum);
+    }
+
+    public void addAll(List<ViewStats> stats) {
+        stats.forEach(viewStats -> add(viewStats.getApp(), viewStats.getUri(), viewStats.getHits()));
+    }
+
+    public List<ViewStats> toSortedList() {
+        List<ViewStats> stats = new ArrayList<>();
+        hitsByAppAndUri.forEach((app, hitsByUri) ->
+                hitsByUri.forEach((uri, hits) -> stats.add(new ViewStats(app, uri, hits))));
+        stats.sort(Comparator.comparing(ViewStats::getHits).reversed());
+        return stats;
+    }
+}
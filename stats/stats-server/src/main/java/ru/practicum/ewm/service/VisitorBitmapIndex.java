@@ -0,0 +1,405 @@
+package ru.practicum.ewm.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.config.BitmapProperties;
+import ru.practicum.ewm.config.ConditionalOnDatabaseEngine;
+import ru.practicum.ewm.constants.Granularity;
+import ru.practicum.ewm.model.Stat;
+import ru.practicum.ewm.model.StatDayRows;
+import ru.practicum.ewm.model.StatVisitor;
+import ru.practicum.ewm.repository.StatsRepository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Slf4j
+@Component
+@ConditionalOnDatabaseEngine
+@RequiredArgsConstructor
+public class VisitorBitmapIndex implements StatsListener {
+    private static final String DICTIONARY_FILE = "ips.dat";
+    private static final String BITMAP_FILE_PREFIX = "visitors-";
+    private static final String BITMAP_FILE_SUFFIX = ".dat";
+    private static final int FORMAT_WITH_ROWS = -1;
+    private final BitmapProperties properties;
+    private final StatsRepository repository;
+    private final Map<String, Integer> ipIds = new HashMap<>();
+    private final List<String> ips = new ArrayList<>();
+    private final NavigableMap<LocalDate, Map<String, Map<String, RoaringBitmap>>> bitmapsByDay = new TreeMap<>();
+    private final Map<LocalDate, Long> rowsByDay = new HashMap<>();
+    private final Set<LocalDate> dirtyDays = new HashSet<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private ScheduledExecutorService snapshots;
+    private int savedIps;
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        load();
+        reconcile();
+        long interval = properties.getSnapshotInterval().toMillis();
+        snapshots = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "stats-bitmap-snapshot"));
+        snapshots.scheduleWithFixedDelay(this::snapshotQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (snapshots == null) {
+            return;
+        }
+        snapshots.shutdown();
+        snapshot();
+    }
+
+    @Override
+    public void onStatsSaved(List<Stat> stats) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        AfterCommit.run(() -> add(stats));
+    }
+
+    public void add(List<Stat> stats) {
+        lock.writeLock().lock();
+        try {
+            for (Stat stat : stats) {
+                LocalDate day = stat.getTimestamp().toLocalDate();
+                int ipId = ipIds.computeIfAbsent(stat.getIp(), ip -> {
+                    ips.add(ip);
+                    return ips.size() - 1;
+                });
+                bitmapsByDay.computeIfAbsent(day, d -> new HashMap<>())
+                        .computeIfAbsent(stat.getApp(), app -> new HashMap<>())
+                        .computeIfAbsent(stat.getUri(), uri -> new RoaringBitmap())
+                        .add(ipId);
+                rowsByDay.merge(day, 1L, Long::sum);
+                dirtyDays.add(day);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        Set<String> uriFilter = uris == null ? null : new HashSet<>(uris);
+        Map<String, Map<String, RoaringBitmap>> visitors = new HashMap<>();
+        Map<String, Map<String, Set<String>>> unknownVisitors = new HashMap<>();
+        LocalDateTime to = TimeBounds.exclusiveEnd(end);
+        LocalDateTime firstDay = Granularity.DAY.ceil(start);
+        LocalDateTime lastDay = Granularity.DAY.floor(to);
+
+        if (firstDay.isBefore(lastDay)) {
+            unionDays(visitors, firstDay.toLocalDate(), lastDay.toLocalDate(), uriFilter);
+            addVisitors(visitors, unknownVisitors, start, firstDay, uris);
+            addVisitors(visitors, unknownVisitors, lastDay, to, uris);
+        } else {
+            addVisitors(visitors, unknownVisitors, start, to, uris);
+        }
+
+        ViewStatsAccumulator accumulator = new ViewStatsAccumulator();
+        visitors.forEach((app, bitmapsByUri) ->
+                bitmapsByUri.forEach((uri, bitmap) -> accumulator.add(app, uri, bitmap.getLongCardinality())));
+        unknownVisitors.forEach((app, ipsByUri) ->
+                ipsByUri.forEach((uri, unknownIps) -> accumulator.add(app, uri, unknownIps.size())));
+        return accumulator.toSortedList();
+    }
+
+    public void prune(LocalDate before) {
+        lock.writeLock().lock();
+        try {
+            Set<LocalDate> pruned = new HashSet<>(bitmapsByDay.headMap(before, false).keySet());
+            pruned.forEach(this::removeDay);
+            dirtyDays.addAll(pruned);
+            if (!pruned.isEmpty()) {
+                log.info("Pruned visitor bitmaps for {} days before {}", pruned.size(), before);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void snapshot() throws IOException {
+        Set<LocalDate> days;
+        lock.writeLock().lock();
+        try {
+            days = new HashSet<>(dirtyDays);
+            dirtyDays.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            write(days);
+        } catch (IOException e) {
+            markDirty(days);
+            throw e;
+        }
+    }
+
+    private void write(Set<LocalDate> days) throws IOException {
+        lock.readLock().lock();
+        try {
+            Path directory = Paths.get(properties.getDirectory());
+            Files.createDirectories(directory);
+            if (savedIps < ips.size()) {
+                writeDictionary(directory);
+            }
+            for (LocalDate day : days) {
+                writeDay(directory, day);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void reconcile() {
+        Map<LocalDate, Long> storedRows = new HashMap<>();
+        for (StatDayRows dayRows : repository.countRowsByDay()) {
+            storedRows.put(dayRows.getDay(), dayRows.getRows());
+        }
+        Set<LocalDate> days = new HashSet<>(storedRows.keySet());
+        lock.readLock().lock();
+        try {
+            days.addAll(bitmapsByDay.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        int pruned = 0;
+        int rebuilt = 0;
+        for (LocalDate day : days) {
+            long stored = storedRows.getOrDefault(day, 0L);
+            Long indexed;
+            lock.readLock().lock();
+            try {
+                indexed = rowsByDay.get(day);
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (indexed != null && indexed == stored) {
+                continue;
+            }
+            if (stored == 0) {
+                replaceDay(day, List.of(), 0);
+                pruned++;
+            } else {
+                replaceDay(day, repository.findVisitors(day.atStartOfDay(), day.plusDays(1).atStartOfDay()), stored);
+                rebuilt++;
+            }
+        }
+        if (pruned > 0 || rebuilt > 0) {
+            log.info("Reconciled visitor bitmaps with statistics: {} days rebuilt, {} days pruned", rebuilt, pruned);
+        }
+    }
+
+    private void replaceDay(LocalDate day, List<StatVisitor> visitors, long rows) {
+        lock.writeLock().lock();
+        try {
+            removeDay(day);
+            for (StatVisitor visitor : visitors) {
+                int ipId = ipIds.computeIfAbsent(visitor.getIp(), ip -> {
+                    ips.add(ip);
+                    return ips.size() - 1;
+                });
+                bitmapsByDay.computeIfAbsent(day, d -> new HashMap<>())
+                        .computeIfAbsent(visitor.getApp(), app -> new HashMap<>())
+                        .computeIfAbsent(visitor.getUri(), uri -> new RoaringBitmap())
+                        .add(ipId);
+            }
+            if (rows > 0) {
+                rowsByDay.put(day, rows);
+            }
+            dirtyDays.add(day);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeDay(LocalDate day) {
+        bitmapsByDay.remove(day);
+        rowsByDay.remove(day);
+    }
+
+    private void unionDays(Map<String, Map<String, RoaringBitmap>> visitors,
+                           LocalDate from, LocalDate to, Set<String> uriFilter) {
+        lock.readLock().lock();
+        try {
+            bitmapsByDay.subMap(from, true, to, false).values().forEach(bitmapsByApp ->
+                    bitmapsByApp.forEach((app, bitmapsByUri) -> bitmapsByUri.forEach((uri, bitmap) -> {
+                        if (uriFilter == null || uriFilter.contains(uri)) {
+                            visitors.computeIfAbsent(app, a -> new HashMap<>())
+                                    .computeIfAbsent(uri, u -> new RoaringBitmap())
+                                    .or(bitmap);
+                        }
+                    })));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addVisitors(Map<String, Map<String, RoaringBitmap>> visitors,
+                             Map<String, Map<String, Set<String>>> unknownVisitors,
+                             LocalDateTime from, LocalDateTime to, List<String> uris) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        List<StatVisitor> edgeVisitors = uris == null
+                ? repository.findVisitors(from, to)
+                : repository.findVisitorsByUris(from, to, uris);
+
+        lock.readLock().lock();
+        try {
+            for (StatVisitor visitor : edgeVisitors) {
+                Integer ipId = ipIds.get(visitor.getIp());
+                if (ipId != null) {
+                    visitors.computeIfAbsent(visitor.getApp(), app -> new HashMap<>())
+                            .computeIfAbsent(visitor.getUri(), uri -> new RoaringBitmap())
+                            .add(ipId);
+                } else {
+                    unknownVisitors.computeIfAbsent(visitor.getApp(), app -> new HashMap<>())
+                            .computeIfAbsent(visitor.getUri(), uri -> new HashSet<>())
+                            .add(visitor.getIp());
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void load() throws IOException {
+        Path directory = Paths.get(properties.getDirectory());
+        Path dictionary = directory.resolve(DICTIONARY_FILE);
+        if (!Files.exists(dictionary)) {
+            return;
+        }
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(dictionary)))) {
+            int size = input.readInt();
+            for (int i = 0; i < size; i++) {
+                String ip = input.readUTF();
+                ipIds.put(ip, i);
+                ips.add(ip);
+            }
+        }
+        savedIps = ips.size();
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                BITMAP_FILE_PREFIX + "*" + BITMAP_FILE_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                LocalDate day = LocalDate.parse(name.substring(BITMAP_FILE_PREFIX.length(),
+                        name.length() - BITMAP_FILE_SUFFIX.length()));
+                try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                    int entries = input.readInt();
+                    if (entries == FORMAT_WITH_ROWS) {
+                        rowsByDay.put(day, input.readLong());
+                        entries = input.readInt();
+                    }
+                    for (int i = 0; i < entries; i++) {
+                        String app = input.readUTF();
+                        String uri = input.readUTF();
+                        RoaringBitmap bitmap = new RoaringBitmap();
+                        bitmap.deserialize(input);
+                        bitmapsByDay.computeIfAbsent(day, d -> new HashMap<>())
+                                .computeIfAbsent(app, a -> new HashMap<>())
+                                .put(uri, bitmap);
+                    }
+                }
+            }
+        }
+        log.info("Loaded visitor bitmaps for {} days and {} ips", bitmapsByDay.size(), ips.size());
+    }
+
+    private void writeDictionary(Path directory) throws IOException {
+        int size = ips.size();
+        writeAtomically(directory.resolve(DICTIONARY_FILE), output -> {
+            output.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                output.writeUTF(ips.get(i));
+            }
+        });
+        savedIps = size;
+    }
+
+    private void writeDay(Path directory, LocalDate day) throws IOException {
+        Map<String, Map<String, RoaringBitmap>> bitmapsByApp = bitmapsByDay.get(day);
+        Path file = directory.resolve(BITMAP_FILE_PREFIX + day + BITMAP_FILE_SUFFIX);
+        if (bitmapsByApp == null) {
+            Files.deleteIfExists(file);
+            return;
+        }
+        long rows = rowsByDay.getOrDefault(day, 0L);
+        writeAtomically(file, output -> {
+            output.writeInt(FORMAT_WITH_ROWS);
+            output.writeLong(rows);
+            output.writeInt(bitmapsByApp.values().stream().mapToInt(Map::size).sum());
+            for (Map.Entry<String, Map<String, RoaringBitmap>> app : bitmapsByApp.entrySet()) {
+                for (Map.Entry<String, RoaringBitmap> uri : app.getValue().entrySet()) {
+                    output.writeUTF(app.getKey());
+                    output.writeUTF(uri.getKey());
+                    uri.getValue().serialize(output);
+                }
+            }
+        });
+    }
+
+    private void markDirty(Set<LocalDate> days) {
+        lock.writeLock().lock();
+        try {
+            dirtyDays.addAll(days);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException e) {
+            log.error("Failed to save visitor bitmaps", e);
+        }
+    }
+
+    private void writeAtomically(Path file, BitmapWriter writer) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            writer.write(output);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private interface BitmapWriter {
+        void write(DataOutputStream output) throws IOException;
+    }
+}
@@ -0,0 +1,187 @@
+package ru.practicum.ewm.sketch;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HyperLogLog distinct counter with 2^precision one-byte registers.
+ * The relative standard error of {@link #cardinality()} is about 1.04 / sqrt(2^precision),
+ * e.g. 1.6% for precision 12 and 0.8% for precision 14.
+ */
+public class HyperLogLog {
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 18;
+    private static final byte SPARSE = 0;
+    private static final byte DENSE = 1;
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("The precision must be between "
+                    + MIN_PRECISION + " and " + MAX_PRECISION);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public void add(String value) {
+        addHash(hash(value));
+    }
+
+    public void addHash(long hash) {
+        int index = (int) (hash >>> (Long.SIZE - precision));
+        long remaining = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    /**
+     * Merges {@code other} into this sketch. A sketch with a higher precision is folded down first;
+     * merging a sketch with a lower precision requires folding this one, see {@link #union}.
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision < precision) {
+            throw new IllegalArgumentException("Cannot merge a sketch with a lower precision");
+        }
+        other = other.fold(precision);
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of this sketch with the given lower precision. The registers are exactly those
+     * a sketch built with that precision from the same values would have.
+     */
+    public HyperLogLog fold(int target) {
+        if (target == precision) {
+            return this;
+        }
+        if (target > precision) {
+            throw new IllegalArgumentException("Cannot fold a sketch to a higher precision");
+        }
+        HyperLogLog folded = new HyperLogLog(target);
+        int shift = precision - target;
+        for (int i = 0; i < registers.length; i++) {
+            if (registers[i] == 0) {
+                continue;
+            }
+            int dropped = i & ((1 << shift) - 1);
+            byte rank = dropped == 0
+                    ? (byte) (registers[i] + shift)
+                    : (byte) (Integer.numberOfLeadingZeros(dropped) - (Integer.SIZE - shift) + 1);
+            int index = i >>> shift;
+            if (rank > folded.registers[index]) {
+                folded.registers[index] = rank;
+            }
+        }
+        return folded;
+    }
+
+    public static HyperLogLog union(HyperLogLog first, HyperLogLog second) {
+        if (first.precision > second.precision) {
+            first = first.fold(second.precision);
+        }
+        first.merge(second);
+        return first;
+    }
+
+    public long cardinality() {
+        int size = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+
+        double estimate = alpha(size) * size * size / sum;
+        if (estimate <= 2.5 * size && zeros > 0) {
+            estimate = size * Math.log((double) size / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public byte[] toBytes() {
+        int used = 0;
+        for (byte register : registers) {
+            if (register != 0) {
+                used++;
+            }
+        }
+
+        int sparseSize = used * (Integer.BYTES + 1);
+        if (sparseSize >= registers.length) {
+            return ByteBuffer.allocate(2 + registers.length)
+                    .put((byte) precision)
+                    .put(DENSE)
+                    .put(registers)
+                    .array();
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(2 + Integer.BYTES + sparseSize)
+                .put((byte) precision)
+                .put(SPARSE)
+                .putInt(used);
+        for (int i = 0; i < registers.length; i++) {
+            if (registers[i] != 0) {
+                buffer.putInt(i).put(registers[i]);
+            }
+        }
+        return buffer.array();
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        HyperLogLog sketch = new HyperLogLog(buffer.get());
+        if (buffer.get() == DENSE) {
+            buffer.get(sketch.registers);
+            return sketch;
+        }
+
+        int used = buffer.getInt();
+        for (int i = 0; i < used; i++) {
+            int index = buffer.getInt();
+            sketch.registers[index] = buffer.get();
+        }
+        return sketch;
+    }
+
+    public static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static double alpha(int size) {
+        switch (size) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / size);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package ru.practicum.ewm.sketch;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Space-Saving heavy-hitter summary holding at most {@code capacity} counters.
+ * Every estimate is an upper bound that overcounts by at most total / capacity,
+ * and any key seen more than total / capacity times is always tracked.
+ */
+public class SpaceSaving<K> {
+    private final int capacity;
+    private final Map<K, Counter<K>> counters = new HashMap<>();
+    private final TreeMap<Long, Set<K>> keysByCount = new TreeMap<>();
+
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void offer(K key, long count) {
+        Counter<K> counter = counters.get(key);
+        if (counter != null) {
+            unlink(counter);
+            counter.count += count;
+            link(counter);
+            return;
+        }
+        if (counters.size() < capacity) {
+            link(new Counter<>(key, count, 0));
+            return;
+        }
+        Set<K> smallest = keysByCount.firstEntry().getValue();
+        Counter<K> evicted = counters.get(smallest.iterator().next());
+        unlink(evicted);
+        link(new Counter<>(key, evicted.count + count, evicted.count));
+    }
+
+    public void merge(SpaceSaving<K> other) {
+        long missing = minCount();
+        long otherMissing = other.minCount();
+        Set<K> keys = new HashSet<>(counters.keySet());
+        keys.addAll(other.counters.keySet());
+
+        List<Counter<K>> merged = new ArrayList<>();
+        for (K key : keys) {
+            Counter<K> counter = counters.get(key);
+            Counter<K> otherCounter = other.counters.get(key);
+            long count = (counter == null ? missing : counter.count)
+                    + (otherCounter == null ? otherMissing : otherCounter.count);
+            long error = (counter == null ? missing : counter.error)
+                    + (otherCounter == null ? otherMissing : otherCounter.error);
+            merged.add(new Counter<>(key, count, error));
+        }
+        merged.sort(Comparator.comparingLong((Counter<K> counter) -> counter.count).reversed());
+
+        counters.clear();
+        keysByCount.clear();
+        merged.stream().limit(capacity).forEach(this::link);
+    }
+
+    public List<Counter<K>> top(int size) {
+        List<Counter<K>> top = new ArrayList<>(size);
+        for (Set<K> keys : keysByCount.descendingMap().values()) {
+            for (K key : keys) {
+                if (top.size() == size) {
+                    return top;
+                }
+                top.add(counters.get(key));
+            }
+        }
+        return top;
+    }
+
+    private long minCount() {
+        return counters.size() < capacity ? 0 : keysByCount.firstKey();
+    }
+
+    private void link(Counter<K> counter) {
+        counters.put(counter.key, counter);
+        keysByCount.computeIfAbsent(counter.count, count -> new LinkedHashSet<>()).add(counter.key);
+    }
+
+    private void unlink(Counter<K> counter) {
+        counters.remove(counter.key);
+        Set<K> keys = keysByCount.get(counter.count);
+        keys.remove(counter.key);
+        if (keys.isEmpty()) {
+            keysByCount.remove(counter.count);
+        }
+    }
+
+    public static class Counter<K> {
+        private final K key;
+        private long count;
+        private final long error;
+
+        private Counter(K key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getError() {
+            return error;
+        }
+    }
+}
@@ -1,2 +1,4 @@
 DELETE FROM statistics;
-ALTER TABLE statistics ALTER COLUMN id RESTART WITH 1;
\ No newline at end of file
+ALTER SEQUENCE statistics_seq RESTART WITH 1;
+DELETE FROM statistics_rollup;
+DELETE FROM statistics_sketch;
\ No newline at end of file
@@ -0,0 +1,34 @@
+-- Moves an existing PostgreSQL statistics table to dictionary-encoded app/uri ids and packed binary ips.
+-- Run once before starting a stats-server that writes app_id, uri_id and a BYTEA ip.
+CREATE TABLE IF NOT EXISTS statistics_app (
+    id INTEGER GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    name VARCHAR(50) NOT NULL,
+    CONSTRAINT pk_statistics_app PRIMARY KEY (id),
+    CONSTRAINT uq_statistics_app_name UNIQUE (name)
+);
+
+CREATE TABLE IF NOT EXISTS statistics_uri (
+    id INTEGER GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    uri VARCHAR(70) NOT NULL,
+    CONSTRAINT pk_statistics_uri PRIMARY KEY (id),
+    CONSTRAINT uq_statistics_uri_uri UNIQUE (uri)
+);
+
+INSERT INTO statistics_app (name) SELECT DISTINCT app FROM statistics ON CONFLICT (name) DO NOTHING;
+INSERT INTO statistics_uri (uri) SELECT DISTINCT uri FROM statistics ON CONFLICT (uri) DO NOTHING;
+
+ALTER TABLE statistics ADD COLUMN app_id INTEGER, ADD COLUMN uri_id INTEGER;
+UPDATE statistics s SET app_id = a.id FROM statistics_app a WHERE a.name = s.app;
+UPDATE statistics s SET uri_id = u.id FROM statistics_uri u WHERE u.uri = s.uri;
+
+-- inet_send returns family, bits, is_cidr and length bytes followed by the 4 or 16 address bytes.
+ALTER TABLE statistics ALTER COLUMN ip TYPE BYTEA USING substring(inet_send(ip::inet) FROM 5);
+
+ALTER TABLE statistics
+    ALTER COLUMN app_id SET NOT NULL,
+    ALTER COLUMN uri_id SET NOT NULL,
+    ADD CONSTRAINT fk_statistics_app FOREIGN KEY (app_id) REFERENCES statistics_app (id),
+    ADD CONSTRAINT fk_statistics_uri FOREIGN KEY (uri_id) REFERENCES statistics_uri (id),
+    DROP COLUMN app,
+    DROP COLUMN uri;
+VACUUM FULL statistics;
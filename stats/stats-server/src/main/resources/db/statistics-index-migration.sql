@@ -0,0 +1,17 @@
+-- Adds the statistics query indexes to an existing PostgreSQL database without blocking ingestion.
+-- Builds each partition's index concurrently and attaches it to the parent index; run with psql outside a transaction.
+CREATE INDEX IF NOT EXISTS ix_statistics_uri_time ON ONLY statistics (uri_id, time_stamp) INCLUDE (app_id, ip, weight);
+CREATE INDEX IF NOT EXISTS ix_statistics_time_brin ON ONLY statistics USING BRIN (time_stamp);
+
+SELECT format('CREATE INDEX CONCURRENTLY IF NOT EXISTS %I ON %I (uri_id, time_stamp) INCLUDE (app_id, ip, weight)',
+              c.relname || '_uri_time', c.relname),
+       format('ALTER INDEX ix_statistics_uri_time ATTACH PARTITION %I', c.relname || '_uri_time'),
+       format('CREATE INDEX CONCURRENTLY IF NOT EXISTS %I ON %I USING BRIN (time_stamp)',
+              c.relname || '_time_brin', c.relname),
+       format('ALTER INDEX ix_statistics_time_brin ATTACH PARTITION %I', c.relname || '_time_brin')
+FROM pg_inherits i
+JOIN pg_class c ON c.oid = i.inhrelid
+WHERE i.inhparent = 'statistics'::regclass
+\gexec
+
+ANALYZE statistics;
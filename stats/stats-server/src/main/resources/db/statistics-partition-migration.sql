@@ -0,0 +1,44 @@
+-- Moves an existing PostgreSQL statistics table into a table range-partitioned by month.
+-- Run once with ingestion stopped; the stats-server creates upcoming partitions and, when enabled, applies retention.
+ALTER TABLE statistics RENAME TO statistics_unpartitioned;
+ALTER INDEX pk_statistics RENAME TO pk_statistics_unpartitioned;
+
+CREATE TABLE statistics (
+    id BIGINT DEFAULT nextval('statistics_seq') NOT NULL,
+    app_id INTEGER NOT NULL,
+    uri_id INTEGER NOT NULL,
+    ip BYTEA NOT NULL,
+    time_stamp TIMESTAMP NOT NULL,
+    weight INTEGER DEFAULT 1 NOT NULL,
+    CONSTRAINT pk_statistics PRIMARY KEY (id, time_stamp),
+    CONSTRAINT fk_statistics_app FOREIGN KEY (app_id) REFERENCES statistics_app (id),
+    CONSTRAINT fk_statistics_uri FOREIGN KEY (uri_id) REFERENCES statistics_uri (id)
+) PARTITION BY RANGE (time_stamp);
+
+CREATE TABLE statistics_default PARTITION OF statistics DEFAULT;
+
+CREATE TABLE IF NOT EXISTS statistics_partition (
+    name VARCHAR(63) NOT NULL,
+    range_start TIMESTAMP NOT NULL,
+    range_end TIMESTAMP NOT NULL,
+    CONSTRAINT pk_statistics_partition PRIMARY KEY (name)
+);
+
+DO $$
+DECLARE
+    month TIMESTAMP;
+    partition_name TEXT;
+BEGIN
+    FOR month IN SELECT DISTINCT date_trunc('month', time_stamp) FROM statistics_unpartitioned
+                 WHERE time_stamp IS NOT NULL LOOP
+        partition_name := 'statistics_p' || to_char(month, 'YYYY_MM');
+        EXECUTE format('CREATE TABLE %I PARTITION OF statistics FOR VALUES FROM (%L) TO (%L)',
+                       partition_name, month, month + INTERVAL '1 month');
+        INSERT INTO statistics_partition (name, range_start, range_end)
+        VALUES (partition_name, month, month + INTERVAL '1 month');
+    END LOOP;
+END $$;
+
+INSERT INTO statistics (id, app_id, uri_id, ip, time_stamp)
+SELECT id, app_id, uri_id, ip, time_stamp FROM statistics_unpartitioned WHERE time_stamp IS NOT NULL;
+DROP TABLE statistics_unpartitioned;
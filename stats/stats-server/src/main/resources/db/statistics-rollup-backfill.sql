@@ -0,0 +1,12 @@
+-- Builds statistics_rollup from the raw statistics table on PostgreSQL.
+-- Run once, with ingestion stopped, when enabling rollups on a database that already holds hits.
+DELETE FROM statistics_rollup;
+INSERT INTO statistics_rollup (granularity, bucket, app, uri, hits)
+SELECT 'MINUTE', date_trunc('minute', s.time_stamp), a.name, u.uri, SUM(s.weight)
+FROM statistics s JOIN statistics_app a ON a.id = s.app_id JOIN statistics_uri u ON u.id = s.uri_id GROUP BY 2, 3, 4;
+INSERT INTO statistics_rollup (granularity, bucket, app, uri, hits)
+SELECT 'HOUR', date_trunc('hour', s.time_stamp), a.name, u.uri, SUM(s.weight)
+FROM statistics s JOIN statistics_app a ON a.id = s.app_id JOIN statistics_uri u ON u.id = s.uri_id GROUP BY 2, 3, 4;
+INSERT INTO statistics_rollup (granularity, bucket, app, uri, hits)
+SELECT 'DAY', date_trunc('day', s.time_stamp), a.name, u.uri, SUM(s.weight)
+FROM statistics s JOIN statistics_app a ON a.id = s.app_id JOIN statistics_uri u ON u.id = s.uri_id GROUP BY 2, 3, 4;
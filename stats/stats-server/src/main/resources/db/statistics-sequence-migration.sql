@@ -0,0 +1,6 @@
+-- Moves an existing PostgreSQL statistics table from an identity column to statistics_seq.
+-- Run once before starting a stats-server that uses the pooled sequence id generator.
+CREATE SEQUENCE IF NOT EXISTS statistics_seq START WITH 1 INCREMENT BY 50;
+ALTER TABLE statistics ALTER COLUMN id DROP IDENTITY IF EXISTS;
+SELECT setval('statistics_seq', COALESCE((SELECT MAX(id) FROM statistics), 0) + 1, false);
+ALTER TABLE statistics ALTER COLUMN id SET DEFAULT nextval('statistics_seq');
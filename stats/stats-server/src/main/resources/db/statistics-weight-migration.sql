@@ -0,0 +1,3 @@
+-- Adds the sampling weight column to an existing PostgreSQL statistics table.
+-- Existing rows read as weight 1 without a table rewrite; run before statistics-index-migration.sql.
+ALTER TABLE statistics ADD COLUMN IF NOT EXISTS weight INTEGER DEFAULT 1 NOT NULL;
@@ -0,0 +1,13 @@
+CREATE TABLE IF NOT EXISTS statistics (
+    id BIGINT DEFAULT nextval('statistics_seq') NOT NULL,
+    app_id INTEGER NOT NULL,
+    uri_id INTEGER NOT NULL,
+    ip BYTEA NOT NULL,
+    time_stamp TIMESTAMP,
+    weight INTEGER DEFAULT 1 NOT NULL,
+    CONSTRAINT pk_statistics PRIMARY KEY (id),
+    CONSTRAINT fk_statistics_app FOREIGN KEY (app_id) REFERENCES statistics_app (id),
+    CONSTRAINT fk_statistics_uri FOREIGN KEY (uri_id) REFERENCES statistics_uri (id)
+);
+
+CREATE INDEX IF NOT EXISTS ix_statistics_uri_time ON statistics (uri_id, time_stamp, app_id);
@@ -0,0 +1,16 @@
+CREATE TABLE IF NOT EXISTS statistics (
+    id BIGINT DEFAULT nextval('statistics_seq') NOT NULL,
+    app_id INTEGER NOT NULL,
+    uri_id INTEGER NOT NULL,
+    ip BYTEA NOT NULL,
+    time_stamp TIMESTAMP NOT NULL,
+    weight INTEGER DEFAULT 1 NOT NULL,
+    CONSTRAINT pk_statistics PRIMARY KEY (id, time_stamp),
+    CONSTRAINT fk_statistics_app FOREIGN KEY (app_id) REFERENCES statistics_app (id),
+    CONSTRAINT fk_statistics_uri FOREIGN KEY (uri_id) REFERENCES statistics_uri (id)
+) PARTITION BY RANGE (time_stamp);
+
+CREATE TABLE IF NOT EXISTS statistics_default PARTITION OF statistics DEFAULT;
+
+CREATE INDEX IF NOT EXISTS ix_statistics_uri_time ON statistics (uri_id, time_stamp) INCLUDE (app_id, ip, weight);
+CREATE INDEX IF NOT EXISTS ix_statistics_time_brin ON statistics USING BRIN (time_stamp);
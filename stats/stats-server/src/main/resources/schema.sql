@@ -1,8 +1,40 @@
-CREATE TABLE IF NOT EXISTS statistics (
-    id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+CREATE SEQUENCE IF NOT EXISTS statistics_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS statistics_app (
+    id INTEGER GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    name VARCHAR(50) NOT NULL,
+    CONSTRAINT pk_statistics_app PRIMARY KEY (id),
+    CONSTRAINT uq_statistics_app_name UNIQUE (name)
+);
+
+CREATE TABLE IF NOT EXISTS statistics_uri (
+    id INTEGER GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    uri VARCHAR(70) NOT NULL,
+    CONSTRAINT pk_statistics_uri PRIMARY KEY (id),
+    CONSTRAINT uq_statistics_uri_uri UNIQUE (uri)
+);
+
+CREATE TABLE IF NOT EXISTS statistics_rollup (
+    granularity VARCHAR(10) NOT NULL,
+    bucket TIMESTAMP NOT NULL,
+    app VARCHAR(50) NOT NULL,
+    uri VARCHAR(70) NOT NULL,
+    hits BIGINT NOT NULL,
+    CONSTRAINT pk_statistics_rollup PRIMARY KEY (granularity, bucket, app, uri)
+);
+
+
+CREATE TABLE IF NOT EXISTS statistics_sketch (
+    bucket TIMESTAMP NOT NULL,
     app VARCHAR(50) NOT NULL,
     uri VARCHAR(70) NOT NULL,
-    ip VARCHAR(70) NOT NULL,
-    time_stamp TIMESTAMP,
-    CONSTRAINT pk_statistics PRIMARY KEY (id)
-);
\ No newline at end of file
+    sketch BYTEA NOT NULL,
+    CONSTRAINT pk_statistics_sketch PRIMARY KEY (bucket, app, uri)
+);
+
+CREATE TABLE IF NOT EXISTS statistics_partition (
+    name VARCHAR(63) NOT NULL,
+    range_start TIMESTAMP NOT NULL,
+    range_end TIMESTAMP NOT NULL,
+    CONSTRAINT pk_statistics_partition PRIMARY KEY (name)
+);
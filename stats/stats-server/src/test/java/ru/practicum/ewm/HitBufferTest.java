@@ -0,0 +1,288 @@
+package ru.practicum.ewm;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import ru.practicum.ewm.config.IngestProperties;
+import ru.practicum.ewm.exceptions.HitBufferFullException;
+import ru.practicum.ewm.model.Stat;
+import ru.practicum.ewm.repository.HitJournal;
+import ru.practicum.ewm.service.HitBuffer;
+import ru.practicum.ewm.service.StatsWriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+public class HitBufferTest {
+    private final StatsWriter writer = mock(StatsWriter.class);
+    @TempDir
+    Path directory;
+
+    @Test
+    void flushOnStopTest() throws Exception {
+        Integer expectedSize = 3;
+        List<Stat> written = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> written.addAll(invocation.getArgument(0))).when(writer).write(any());
+        HitBuffer buffer = makeBuffer(100, 500, IngestProperties.OverflowPolicy.BLOCK);
+
+        buffer.start();
+        buffer.add(List.of(makeStat("/events"), makeStat("/events/1"), makeStat("/events/2")));
+        buffer.stop();
+
+        assertThat(written.size(), is(expectedSize));
+    }
+
+    @Test
+    void verifyRejectWhenFullException() throws Exception {
+        CountDownLatch flushStarted = new CountDownLatch(1);
+        CountDownLatch releaseFlush = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            flushStarted.countDown();
+            return releaseFlush.await(5, TimeUnit.SECONDS);
+        }).when(writer).write(any());
+        HitBuffer buffer = makeBuffer(1, 1, IngestProperties.OverflowPolicy.REJECT);
+
+        buffer.start();
+        buffer.add(List.of(makeStat("/events")));
+        flushStarted.await(5, TimeUnit.SECONDS);
+        buffer.add(List.of(makeStat("/events/1")));
+
+        final HitBufferFullException exception = assertThrows(
+                HitBufferFullException.class,
+                () -> buffer.add(List.of(makeStat("/events/2"))));
+
+        assertThat("The hit buffer is full", is(exception.getMessage()));
+        releaseFlush.countDown();
+        buffer.stop();
+    }
+
+    @Test
+    void retryFailedFlushTest() throws Exception {
+        Integer expectedSize = 2;
+        AtomicInteger attempts = new AtomicInteger();
+        List<Stat> written = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            if (attempts.incrementAndGet() <= 2) {
+                throw new IllegalStateException("The database is down");
+            }
+            return written.addAll(invocation.getArgument(0));
+        }).when(writer).write(any());
+        HitBuffer buffer = makeBuffer(100, 500, IngestProperties.OverflowPolicy.BLOCK);
+
+        buffer.start();
+        buffer.add(List.of(makeStat("/events"), makeStat("/events/1")));
+        buffer.stop();
+
+        assertThat(written.size(), is(expectedSize));
+        assertThat(attempts.get(), is(3));
+    }
+
+    @Test
+    void acknowledgedHitsAreFlushedWhenStoppingTest() throws Exception {
+        List<Stat> written = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> written.addAll(invocation.getArgument(0))).when(writer).write(any());
+        HitBuffer buffer = makeBuffer(4, 2, IngestProperties.OverflowPolicy.BLOCK);
+        AtomicInteger acknowledged = new AtomicInteger();
+        AtomicBoolean producing = new AtomicBoolean(true);
+        ExecutorService producers = Executors.newFixedThreadPool(4);
+
+        buffer.start();
+        for (int i = 0; i < 4; i++) {
+            producers.execute(() -> {
+                while (producing.get()) {
+                    try {
+                        buffer.add(List.of(makeStat("/events")));
+                        acknowledged.incrementAndGet();
+                    } catch (HitBufferFullException e) {
+                        return;
+                    }
+                }
+            });
+        }
+        Thread.sleep(100);
+        buffer.stop();
+        producing.set(false);
+        producers.shutdown();
+        producers.awaitTermination(5, TimeUnit.SECONDS);
+
+        assertThat(written.size(), is(acknowledged.get()));
+    }
+
+    @Test
+    void replayJournalAfterFailedFlushTest() throws Exception {
+        Integer expectedSize = 2;
+        doThrow(new DataAccessResourceFailureException("The database is down")).when(writer).write(any());
+        IngestProperties properties = makeProperties(100, 500, IngestProperties.OverflowPolicy.BLOCK);
+        properties.setJournalEnabled(true);
+        properties.setJournalDirectory(directory.toString());
+        properties.setShutdownTimeout(Duration.ofMillis(100));
+        HitJournal journal = new HitJournal(properties);
+        HitBuffer buffer = new HitBuffer(properties, writer, journal, new SimpleMeterRegistry());
+
+        journal.start();
+        buffer.start();
+        buffer.add(List.of(makeStat("/events"), makeStat("/events/1")));
+        buffer.stop();
+        journal.stop();
+
+        StatsWriter restartedWriter = mock(StatsWriter.class);
+        List<Stat> written = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> written.addAll(invocation.getArgument(0))).when(restartedWriter).write(any());
+        HitJournal restartedJournal = new HitJournal(properties);
+        HitBuffer restarted = new HitBuffer(properties, restartedWriter, restartedJournal, new SimpleMeterRegistry());
+
+        restartedJournal.start();
+        restarted.start();
+        restarted.stop();
+        restartedJournal.stop();
+
+        assertThat(written.size(), is(expectedSize));
+        assertThat(written.get(1).getUri(), is("/events/1"));
+        assertThat(countJournalFiles(), is(0L));
+    }
+
+    @Test
+    void replayWeightAfterRestartTest() throws Exception {
+        doThrow(new DataAccessResourceFailureException("The database is down")).when(writer).write(any());
+        IngestProperties properties = makeProperties(100, 500, IngestProperties.OverflowPolicy.BLOCK);
+        properties.setJournalEnabled(true);
+        properties.setJournalDirectory(directory.toString());
+        properties.setShutdownTimeout(Duration.ofMillis(100));
+        HitJournal journal = new HitJournal(properties);
+        HitBuffer buffer = new HitBuffer(properties, writer, journal, new SimpleMeterRegistry());
+        Stat sampled = makeStat("/events");
+        sampled.setWeight(7);
+
+        journal.start();
+        buffer.start();
+        buffer.add(List.of(sampled));
+        buffer.stop();
+        journal.stop();
+
+        HitJournal restartedJournal = new HitJournal(properties);
+        restartedJournal.start();
+        List<Stat> recovered = restartedJournal.recover();
+        restartedJournal.stop();
+
+        assertThat(recovered.size(), is(1));
+        assertThat(recovered.get(0).getWeight(), is(7));
+        assertThat(recovered.get(0).getTimestamp(), is(sampled.getTimestamp()));
+    }
+
+    @Test
+    void dropPoisonHitsAfterRetriesTest() throws Exception {
+        List<Stat> written = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            List<Stat> stats = invocation.getArgument(0);
+            if (stats.stream().anyMatch(stat -> stat.getUri().equals("/poison"))) {
+                throw new DataIntegrityViolationException("The hit violates a constraint");
+            }
+            return written.addAll(stats);
+        }).when(writer).write(any());
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        IngestProperties properties = makeProperties(100, 500, IngestProperties.OverflowPolicy.BLOCK);
+        properties.setFlushMaxRetries(2);
+        HitBuffer buffer = new HitBuffer(properties, writer, new HitJournal(properties), meterRegistry);
+
+        buffer.start();
+        buffer.add(List.of(makeStat("/events"), makeStat("/poison"), makeStat("/events/1"), makeStat("/events/2")));
+        buffer.stop();
+
+        assertThat(written.size(), is(3));
+        assertThat(meterRegistry.get("stats.buffer.dead-lettered").counter().count(), is(1.0));
+    }
+
+    @Test
+    void replayPoisonHitsOnceTest() throws Exception {
+        doThrow(new DataAccessResourceFailureException("The database is down")).when(writer).write(any());
+        IngestProperties properties = makeProperties(100, 500, IngestProperties.OverflowPolicy.BLOCK);
+        properties.setJournalEnabled(true);
+        properties.setJournalDirectory(directory.toString());
+        properties.setShutdownTimeout(Duration.ofMillis(100));
+        properties.setFlushMaxRetries(1);
+        HitJournal journal = new HitJournal(properties);
+        HitBuffer buffer = new HitBuffer(properties, writer, journal, new SimpleMeterRegistry());
+
+        journal.start();
+        buffer.start();
+        buffer.add(List.of(makeStat("/poison"), makeStat("/events")));
+        buffer.stop();
+        journal.stop();
+
+        StatsWriter restartedWriter = mock(StatsWriter.class);
+        List<Stat> written = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            List<Stat> stats = invocation.getArgument(0);
+            if (stats.stream().anyMatch(stat -> stat.getUri().equals("/poison"))) {
+                throw new DataIntegrityViolationException("The hit violates a constraint");
+            }
+            return written.addAll(stats);
+        }).when(restartedWriter).write(any());
+        HitJournal restartedJournal = new HitJournal(properties);
+        HitBuffer restarted = new HitBuffer(properties, restartedWriter, restartedJournal, new SimpleMeterRegistry());
+
+        restartedJournal.start();
+        restarted.start();
+        restarted.stop();
+        restartedJournal.stop();
+
+        assertThat(written.size(), is(1));
+        assertThat(written.get(0).getUri(), is("/events"));
+        assertThat(countJournalFiles(), is(0L));
+    }
+
+    private HitBuffer makeBuffer(int capacity, int flushSize, IngestProperties.OverflowPolicy policy) {
+        IngestProperties properties = makeProperties(capacity, flushSize, policy);
+        return new HitBuffer(properties, writer, new HitJournal(properties), new SimpleMeterRegistry());
+    }
+
+    private IngestProperties makeProperties(int capacity, int flushSize, IngestProperties.OverflowPolicy policy) {
+        IngestProperties properties = new IngestProperties();
+        properties.setMode(IngestProperties.Mode.BUFFERED);
+        properties.setCapacity(capacity);
+        properties.setFlushSize(flushSize);
+        properties.setFlushInterval(Duration.ofMinutes(1));
+        properties.setOverflowPolicy(policy);
+        properties.setFlushRetryBackoff(Duration.ofMillis(10));
+        properties.setFlushRetryMaxBackoff(Duration.ofMillis(50));
+        properties.setJournalEnabled(false);
+        return properties;
+    }
+
+    private long countJournalFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private Stat makeStat(String uri) {
+        return Stat.builder()
+                .app("ewm-main-service")
+                .uri(uri)
+                .ip("192.168.0.1")
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,88 @@
+package ru.practicum.ewm;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.practicum.ewm.config.DedupProperties;
+import ru.practicum.ewm.service.HitDeduplicator;
+import ru.practicum.ewm.sketch.BloomFilter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class HitDeduplicatorTest {
+    private final DedupProperties properties = new DedupProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final HitDeduplicator deduplicator = new HitDeduplicator(properties, meterRegistry);
+
+    @Test
+    void dropRetriedHitsTest() {
+        List<EndpointHit> saved = new ArrayList<>();
+
+        deduplicator.save(List.of(makeHit("a"), makeHit("b"), makeHit("a"), makeHit(null)), saved::addAll);
+        deduplicator.save(List.of(makeHit("b"), makeHit("c"), makeHit(null)), saved::addAll);
+
+        assertThat(saved.size(), is(5));
+        assertThat(saved.get(3).getHitId(), is("c"));
+    }
+
+    @Test
+    void acceptRetryAfterFailedIngestTest() {
+        List<EndpointHit> saved = new ArrayList<>();
+
+        assertThrows(IllegalStateException.class, () -> deduplicator.save(List.of(makeHit("a")), hits -> {
+            throw new IllegalStateException("The database is down");
+        }));
+        deduplicator.save(List.of(makeHit("a")), saved::addAll);
+
+        assertThat(saved.size(), is(1));
+    }
+
+    @Test
+    void keepPendingClaimsOnOverflowTest() {
+        properties.setRecentCapacity(1);
+        List<EndpointHit> saved = new ArrayList<>();
+
+        deduplicator.save(List.of(makeHit("a")), hits -> {
+            deduplicator.save(List.of(makeHit("b"), makeHit("c")), saved::addAll);
+            deduplicator.save(List.of(makeHit("a")), saved::addAll);
+            saved.addAll(hits);
+        });
+
+        assertThat(saved.size(), is(3));
+        assertThat(meterRegistry.counter("stats.hits.duplicate").count(), is(1.0));
+    }
+
+    @Test
+    void bloomFilterTest() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("hit-" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(filter.mightContain("hit-" + i), is(true));
+            if (filter.mightContain("other-" + i)) {
+                falsePositives++;
+            }
+        }
+
+        assertThat(falsePositives, lessThan(200));
+    }
+
+    private EndpointHit makeHit(String hitId) {
+        return EndpointHit.builder()
+                .hitId(hitId)
+                .app("ewm-main-service")
+                .uri("/events")
+                .ip("192.168.0.1")
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,49 @@
+package ru.practicum.ewm;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import ru.practicum.ewm.service.HitLogStatsStorage;
+import ru.practicum.ewm.service.StatsStorage;
+import ru.practicum.ewm.service.StatsService;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+
+@SpringBootTest(properties = {
+        "stats.storage.engine=log",
+        "stats.log.directory=target/hit-log-engine-test/${random.uuid}"})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class HitLogEngineTest {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private final ApplicationContext context;
+    private final StatsService service;
+    private final StatsStorage storage;
+
+    @Test
+    void runWithoutDataSourceTest() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        service.saveDataRequest(EndpointHit.builder()
+                .app("ewm-main-service")
+                .uri("/events/1")
+                .ip("192.168.0.1")
+                .timestamp(now.minusMinutes(1))
+                .build());
+
+        List<ViewStats> stats = service.getStats(now.minusHours(1).format(FORMATTER), now.format(FORMATTER),
+                List.of("/events/1"), "false", false, null);
+
+        assertThat(context.getBeanNamesForType(DataSource.class).length, is(0));
+        assertThat(storage, instanceOf(HitLogStatsStorage.class));
+        assertThat(stats.size(), is(1));
+        assertThat(stats.get(0).getHits(), is(1L));
+    }
+}
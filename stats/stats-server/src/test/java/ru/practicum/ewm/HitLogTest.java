@@ -0,0 +1,145 @@
+package ru.practicum.ewm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import ru.practicum.ewm.config.HitLogProperties;
+import ru.practicum.ewm.model.Stat;
+import ru.practicum.ewm.model.StatWindow;
+import ru.practicum.ewm.model.StatWindowHits;
+import ru.practicum.ewm.repository.HitLog;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class HitLogTest {
+    private final LocalDateTime hour = LocalDateTime.of(2023, 5, 1, 10, 0);
+    @TempDir
+    Path directory;
+
+    @Test
+    void appendAndCountTest() throws Exception {
+        HitLog hitLog = makeHitLog();
+        hitLog.start();
+
+        hitLog.append(List.of(
+                makeStat("/events/1", "192.168.0.1", hour),
+                makeStat("/events/1", "192.168.0.1", hour.plusMinutes(30)),
+                makeStat("/events/2", "2001:db8::1", hour.plusMinutes(90))));
+        List<ViewStats> hits = sorted(hitLog.countHits(hour, hour.plusHours(1), uriId -> true));
+        List<ViewStats> visitors = hitLog.countVisitors(hour, hour.plusHours(2), uriId -> uriId == 0);
+        List<StatWindowHits> windows = hitLog.countHits(List.of(
+                new StatWindow(hour, hour.plusHours(1)),
+                new StatWindow(hour, hour.plusHours(2))), uriId -> uriId == 1);
+        hitLog.stop();
+
+        assertThat(hits.size(), is(1));
+        assertThat(hits.get(0).getHits(), is(2L));
+        assertThat(visitors.size(), is(1));
+        assertThat(visitors.get(0).getHits(), is(1L));
+        assertThat(windows.size(), is(1));
+        assertThat(windows.get(0).getWindow(), is(1));
+    }
+
+    @Test
+    void rollCompactAndRecoverTest() throws Exception {
+        HitLog hitLog = makeHitLog();
+        hitLog.start();
+        List<Stat> stats = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            stats.add(makeStat("/events/" + i % 2, "192.168.0." + i, hour.plusMinutes(i * 10L)));
+        }
+        hitLog.append(stats);
+        for (int i = 0; i < 100 && !Files.exists(directory.resolve("segment-00000000000000000001.summary")); i++) {
+            Thread.sleep(50);
+        }
+        List<ViewStats> beforeRestart = sorted(hitLog.countHits(hour.plusMinutes(5), hour.plusHours(4), uriId -> true));
+        hitLog.stop();
+
+        HitLog restarted = makeHitLog();
+        restarted.start();
+        List<ViewStats> afterRestart = sorted(restarted.countHits(hour.plusMinutes(5), hour.plusHours(4), uriId -> true));
+        restarted.append(List.of(makeStat("/events/0", "192.168.0.1", hour.plusMinutes(15))));
+        List<ViewStats> appended = sorted(restarted.countHits(hour.plusMinutes(5), hour.plusHours(4), uriId -> true));
+        restarted.stop();
+
+        assertThat(Files.exists(directory.resolve("segment-00000000000000000002.log")), is(true));
+        assertThat(Files.exists(directory.resolve("segment-00000000000000000000.summary")), is(true));
+        assertThat(beforeRestart.get(0).getHits() + beforeRestart.get(1).getHits(), is(23L));
+        assertThat(afterRestart.get(0).getHits(), is(beforeRestart.get(0).getHits()));
+        assertThat(afterRestart.get(1).getHits(), is(beforeRestart.get(1).getHits()));
+        assertThat(appended.get(0).getUri(), is("/events/0"));
+        assertThat(appended.get(0).getHits(), is(12L));
+    }
+
+    @Test
+    void recompactUnreadableSummaryTest() throws Exception {
+        HitLog hitLog = makeHitLog();
+        hitLog.start();
+        List<Stat> stats = new ArrayList<>();
+        for (int i = 0; i < 15; i++) {
+            stats.add(makeStat("/events/1", "192.168.0." + i, hour.plusMinutes(i)));
+        }
+        hitLog.append(stats);
+        Path summary = directory.resolve("segment-00000000000000000000.summary");
+        for (int i = 0; i < 100 && !Files.exists(summary); i++) {
+            Thread.sleep(50);
+        }
+        hitLog.stop();
+        Files.write(summary, new byte[]{0, 0});
+
+        HitLog restarted = makeHitLog();
+        restarted.start();
+        List<ViewStats> hits = restarted.countHits(hour, hour.plusHours(1), uriId -> true);
+        for (int i = 0; i < 100 && !Files.exists(summary); i++) {
+            Thread.sleep(50);
+        }
+        restarted.stop();
+
+        assertThat(hits.get(0).getHits(), is(15L));
+        assertThat(Files.size(summary) > 2, is(true));
+    }
+
+    @Test
+    void appendNothingFromInvalidBatchTest() throws Exception {
+        HitLog hitLog = makeHitLog();
+        hitLog.start();
+
+        assertThrows(IllegalArgumentException.class, () -> hitLog.append(List.of(
+                makeStat("/events/1", "192.168.0.1", hour),
+                makeStat("/events/1", "not an ip", hour))));
+        List<ViewStats> hits = hitLog.countHits(hour, hour.plusHours(1), uriId -> true);
+        hitLog.stop();
+
+        assertThat(hits.size(), is(0));
+    }
+
+    private List<ViewStats> sorted(List<ViewStats> stats) {
+        stats.sort(Comparator.comparing(ViewStats::getUri));
+        return stats;
+    }
+
+    private HitLog makeHitLog() {
+        HitLogProperties properties = new HitLogProperties();
+        properties.setDirectory(directory.toString());
+        properties.setSegmentSize(DataSize.ofBytes(34 * 10));
+        return new HitLog(properties);
+    }
+
+    private Stat makeStat(String uri, String ip, LocalDateTime timestamp) {
+        return Stat.builder()
+                .app("ewm-main-service")
+                .uri(uri)
+                .ip(ip)
+                .timestamp(timestamp)
+                .build();
+    }
+}
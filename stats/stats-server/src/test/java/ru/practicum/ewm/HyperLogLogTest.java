@@ -0,0 +1,74 @@
+package ru.practicum.ewm;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.ewm.sketch.HyperLogLog;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+
+public class HyperLogLogTest {
+
+    @Test
+    void cardinalityTest() {
+        int expected = 100_000;
+        HyperLogLog sketch = new HyperLogLog(12);
+
+        for (int i = 0; i < expected; i++) {
+            sketch.add("10.0." + (i / 256) + "." + (i % 256));
+            sketch.add("10.0." + (i / 256) + "." + (i % 256));
+        }
+
+        assertThat((double) sketch.cardinality(), closeTo(expected, expected * 0.05));
+    }
+
+    @Test
+    void smallCardinalityTest() {
+        HyperLogLog sketch = new HyperLogLog(12);
+
+        sketch.add("192.168.0.1");
+        sketch.add("192.168.0.2");
+        sketch.add("192.168.0.1");
+
+        assertThat(sketch.cardinality(), is(2L));
+    }
+
+    @Test
+    void mergeAndSerializationTest() {
+        int expected = 20_000;
+        HyperLogLog first = new HyperLogLog(14);
+        HyperLogLog second = new HyperLogLog(14);
+
+        for (int i = 0; i < expected; i++) {
+            if (i % 2 == 0) {
+                first.add("ip-" + i);
+            } else {
+                second.add("ip-" + i);
+            }
+        }
+        HyperLogLog restored = HyperLogLog.fromBytes(first.toBytes());
+        restored.merge(HyperLogLog.fromBytes(second.toBytes()));
+
+        assertThat((double) restored.cardinality(), closeTo(expected, expected * 0.03));
+    }
+
+    @Test
+    void foldAndMergeDifferentPrecisionTest() {
+        int expected = 20_000;
+        HyperLogLog fine = new HyperLogLog(14);
+        HyperLogLog coarse = new HyperLogLog(12);
+        HyperLogLog direct = new HyperLogLog(12);
+
+        for (int i = 0; i < expected; i++) {
+            (i % 2 == 0 ? fine : coarse).add("ip-" + i);
+            direct.add("ip-" + i);
+        }
+        HyperLogLog folded = fine.fold(12);
+        HyperLogLog union = HyperLogLog.union(HyperLogLog.fromBytes(fine.toBytes()), coarse);
+
+        assertThat(folded.getPrecision(), is(12));
+        assertThat(union.getPrecision(), is(12));
+        assertThat(union.toBytes(), is(direct.toBytes()));
+        assertThat((double) union.cardinality(), closeTo(expected, expected * 0.05));
+    }
+}
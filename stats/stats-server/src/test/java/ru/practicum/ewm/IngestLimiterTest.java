@@ -0,0 +1,192 @@
+package ru.practicum.ewm;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.practicum.ewm.config.AdmissionProperties;
+import ru.practicum.ewm.exceptions.IngestOverloadException;
+import ru.practicum.ewm.model.Stat;
+import ru.practicum.ewm.service.IngestLimiter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class IngestLimiterTest {
+    private final AdmissionProperties properties = new AdmissionProperties();
+
+    @Test
+    void verifyRejectOverLimitException() throws Exception {
+        properties.setInitialLimit(1);
+        IngestLimiter limiter = new IngestLimiter(properties, new SimpleMeterRegistry());
+        CountDownLatch ingestStarted = new CountDownLatch(1);
+        CountDownLatch releaseIngest = new CountDownLatch(1);
+        Thread slowRequest = new Thread(() -> limiter.admit(List.of(makeStat()), stats -> {
+            ingestStarted.countDown();
+            await(releaseIngest);
+        }));
+
+        slowRequest.start();
+        ingestStarted.await(5, TimeUnit.SECONDS);
+        final IngestOverloadException exception = assertThrows(
+                IngestOverloadException.class,
+                () -> limiter.admit(List.of(makeStat()), stats -> { }));
+        releaseIngest.countDown();
+        slowRequest.join();
+
+        assertThat("The stats server is overloaded", is(exception.getMessage()));
+        assertThat(exception.getRetryAfter(), is(Duration.ofSeconds(1)));
+    }
+
+    @Test
+    void sampleOverLimitTest() {
+        properties.setInitialLimit(1);
+        properties.setMinLimit(0);
+        properties.setSamplingEnabled(true);
+        properties.setSamplingRate(0.25);
+        IngestLimiter limiter = new IngestLimiter(properties, new SimpleMeterRegistry());
+        List<Stat> saved = new ArrayList<>();
+
+        limiter.admit(List.of(makeStat()), stats -> {
+            List<Stat> batch = new ArrayList<>();
+            for (int i = 0; i < 4000; i++) {
+                batch.add(makeStat());
+            }
+            limiter.admit(batch, saved::addAll);
+        });
+        long weighted = saved.stream().mapToLong(Stat::getWeight).sum();
+
+        assertThat(saved.get(0).getWeight(), is(4));
+        assertThat((double) weighted, closeTo(4000, 800));
+    }
+
+    @Test
+    void clampSampledWeightTest() {
+        properties.setInitialLimit(1);
+        properties.setMinLimit(0);
+        properties.setSamplingEnabled(true);
+        properties.setSamplingRate(0.5);
+        IngestLimiter limiter = new IngestLimiter(properties, new SimpleMeterRegistry());
+        List<Stat> saved = new ArrayList<>();
+
+        limiter.admit(List.of(makeStat()), stats -> {
+            List<Stat> batch = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                Stat stat = makeStat();
+                stat.setWeight(800);
+                batch.add(stat);
+            }
+            limiter.admit(batch, saved::addAll);
+        });
+
+        assertThat(saved.isEmpty(), is(false));
+        assertThat(saved.stream().allMatch(stat -> stat.getWeight() == EndpointHit.MAX_WEIGHT), is(true));
+    }
+
+    @Test
+    void keepSampledTotalUnbiasedTest() {
+        properties.setInitialLimit(1);
+        properties.setMinLimit(0);
+        properties.setSamplingEnabled(true);
+        properties.setSamplingRate(0.3);
+        IngestLimiter limiter = new IngestLimiter(properties, new SimpleMeterRegistry());
+        List<Stat> saved = new ArrayList<>();
+
+        limiter.admit(List.of(makeStat()), stats -> {
+            List<Stat> batch = new ArrayList<>();
+            for (int i = 0; i < 100_000; i++) {
+                batch.add(makeStat());
+            }
+            limiter.admit(batch, saved::addAll);
+        });
+        double total = saved.stream().mapToInt(Stat::getWeight).sum();
+
+        assertThat(total, closeTo(100_000, 2_000));
+    }
+
+    @Test
+    void decreaseLimitOnSlowIngestTest() {
+        properties.setLatencyThreshold(Duration.ZERO);
+        properties.setHitLatencyThreshold(Duration.ZERO);
+        IngestLimiter limiter = new IngestLimiter(properties, new SimpleMeterRegistry());
+
+        for (int i = 0; i < 5; i++) {
+            limiter.admit(List.of(makeStat()), stats -> { });
+        }
+
+        assertThat(limiter.getLimit(), lessThan(12.0));
+    }
+
+    @Test
+    void keepLimitOnLargeBatchTest() {
+        properties.setLatencyThreshold(Duration.ZERO);
+        properties.setHitLatencyThreshold(Duration.ofMillis(1));
+        IngestLimiter limiter = new IngestLimiter(properties, new SimpleMeterRegistry());
+        List<Stat> batch = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            batch.add(makeStat());
+        }
+
+        limiter.admit(batch, stats -> sleep(50));
+
+        assertThat(limiter.getLimit(), is(20.0));
+    }
+
+    @Test
+    void decreaseLimitOncePerWindowTest() throws Exception {
+        properties.setLatencyThreshold(Duration.ZERO);
+        properties.setHitLatencyThreshold(Duration.ZERO);
+        IngestLimiter limiter = new IngestLimiter(properties, new SimpleMeterRegistry());
+        CountDownLatch ingestStarted = new CountDownLatch(3);
+        CountDownLatch releaseIngest = new CountDownLatch(1);
+        List<Thread> requests = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            requests.add(new Thread(() -> limiter.admit(List.of(makeStat()), stats -> {
+                ingestStarted.countDown();
+                await(releaseIngest);
+            })));
+        }
+
+        requests.forEach(Thread::start);
+        ingestStarted.await(5, TimeUnit.SECONDS);
+        releaseIngest.countDown();
+        for (Thread request : requests) {
+            request.join();
+        }
+
+        assertThat(limiter.getLimit(), is(18.0));
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Stat makeStat() {
+        return Stat.builder()
+                .app("ewm-main-service")
+                .uri("/events")
+                .ip("192.168.0.1")
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,51 @@
+package ru.practicum.ewm;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.ewm.mapper.IpAddressConverter;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class IpAddressConverterTest {
+    private final IpAddressConverter converter = new IpAddressConverter();
+
+    @Test
+    void packIpv4Test() {
+        byte[] address = converter.convertToDatabaseColumn("192.168.0.1");
+
+        assertThat(address.length, is(4));
+        assertThat(converter.convertToEntityAttribute(address), is("192.168.0.1"));
+    }
+
+    @Test
+    void packIpv6Test() {
+        byte[] address = converter.convertToDatabaseColumn("2001:db8::1");
+
+        assertThat(address.length, is(16));
+        assertThat(converter.convertToEntityAttribute(address), is("2001:db8:0:0:0:0:0:1"));
+    }
+
+    @Test
+    void verifyNotAnIpAddressException() {
+        assertThrows(IllegalArgumentException.class, () -> converter.convertToDatabaseColumn("localhost"));
+        assertThrows(IllegalArgumentException.class, () -> converter.convertToDatabaseColumn("192.168.0.256"));
+        assertThrows(IllegalArgumentException.class, () -> converter.convertToDatabaseColumn("2001:db8:::1"));
+    }
+
+    @Test
+    void validateIpLikeConverterTest() {
+        Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+        assertThat(validator.validateValue(EndpointHit.class, "ip", "2001:db8::1"), is(empty()));
+        assertThat(validator.validateValue(EndpointHit.class, "ip", "192.168.0.1"), is(empty()));
+        assertThat(validator.validateValue(EndpointHit.class, "ip", ":::"), hasSize(1));
+        assertThat(validator.validateValue(EndpointHit.class, "ip", "fe80::1%eth0"), hasSize(1));
+        assertThat(validator.validateValue(EndpointHit.class, "ip", "192.168.0.256"), hasSize(1));
+    }
+}
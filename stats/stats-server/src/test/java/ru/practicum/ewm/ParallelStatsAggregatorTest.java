@@ -0,0 +1,63 @@
+package ru.practicum.ewm;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.ewm.config.ParallelProperties;
+import ru.practicum.ewm.config.PartitionProperties;
+import ru.practicum.ewm.model.StatWindow;
+import ru.practicum.ewm.repository.StatsRepository;
+import ru.practicum.ewm.service.ParallelStatsAggregator;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ParallelStatsAggregatorTest {
+    private final StatsRepository repository = mock(StatsRepository.class);
+
+    @Test
+    void splitAlongPartitionsTest() {
+        LocalDateTime from = LocalDateTime.of(2023, 1, 15, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2023, 4, 15, 0, 0);
+
+        List<StatWindow> chunks = makeAggregator().split(from, to);
+
+        assertThat(chunks.size(), is(6));
+        assertThat(chunks.get(0).getFrom(), is(from));
+        assertThat(chunks.get(0).getTo(), is(LocalDateTime.of(2023, 2, 1, 0, 0)));
+        assertThat(chunks.get(1).getTo(), is(LocalDateTime.of(2023, 2, 23, 12, 0)));
+        assertThat(chunks.get(5).getTo(), is(to));
+        for (int i = 1; i < chunks.size(); i++) {
+            assertThat(chunks.get(i).getFrom(), is(chunks.get(i - 1).getTo()));
+            assertThat(chunks.get(i).getFrom().getMonth() == chunks.get(i).getTo().minusNanos(1).getMonth(), is(true));
+        }
+    }
+
+    @Test
+    void countHitsMergesChunksTest() {
+        when(repository.countHits(any(), any())).thenReturn(List.of(
+                new ViewStats("ewm-main-service", "/events", 2L),
+                new ViewStats("ewm-main-service", "/events/1", 1L)));
+        ParallelStatsAggregator aggregator = makeAggregator();
+        aggregator.start();
+
+        List<ViewStats> stats = aggregator.countHits(LocalDateTime.of(2023, 1, 15, 0, 0),
+                LocalDateTime.of(2023, 4, 15, 0, 0), null);
+        aggregator.stop();
+
+        verify(repository, times(6)).countHits(any(), any());
+        assertThat(stats.size(), is(2));
+        assertThat(stats.get(0).getUri(), is("/events"));
+        assertThat(stats.get(0).getHits(), is(12L));
+    }
+
+    private ParallelStatsAggregator makeAggregator() {
+        return new ParallelStatsAggregator(new ParallelProperties(), new PartitionProperties(), repository);
+    }
+}
@@ -0,0 +1,102 @@
+package ru.practicum.ewm;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.ewm.config.CounterProperties;
+import ru.practicum.ewm.config.RollupProperties;
+import ru.practicum.ewm.constants.Granularity;
+import ru.practicum.ewm.model.Stat;
+import ru.practicum.ewm.model.StatRollup;
+import ru.practicum.ewm.repository.StatsRollupRepository;
+import ru.practicum.ewm.service.RecentHitCounter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RecentHitCounterTest {
+    private final StatsRollupRepository rollupRepository = mock(StatsRollupRepository.class);
+    private final CounterProperties properties = new CounterProperties();
+
+    @Test
+    void countRecentHitsTest() {
+        RecentHitCounter counter = makeCounter(false);
+        LocalDateTime minute = Granularity.MINUTE.floor(LocalDateTime.now());
+        counter.start();
+
+        counter.onStatsSaved(List.of(
+                makeStat("/events", minute.plusSeconds(1)),
+                makeStat("/events", minute.plusSeconds(2)),
+                makeStat("/events/1", minute.plusSeconds(3)),
+                makeStat("/events", minute.minusDays(8))));
+        List<ViewStats> stats = counter.getStats(minute.minusDays(7), minute.plusMinutes(1), null);
+        List<ViewStats> byUri = counter.getStats(minute, minute.plusMinutes(1), List.of("/events/1"));
+
+        assertThat(stats.size(), is(2));
+        assertThat(stats.get(0).getUri(), is("/events"));
+        assertThat(stats.get(0).getHits(), is(2L));
+        assertThat(byUri.size(), is(1));
+        assertThat(byUri.get(0).getHits(), is(1L));
+        assertThat(counter.getCoverageStart(), is(minute.plusMinutes(1)));
+    }
+
+    @Test
+    void warmUpFromRollupsTest() {
+        RecentHitCounter counter = makeCounter(true);
+        LocalDateTime minute = Granularity.MINUTE.floor(LocalDateTime.now()).minusHours(1);
+        when(rollupRepository.findBuckets(eq(Granularity.MINUTE), any(), any())).thenReturn(List.of(
+                new StatRollup(Granularity.MINUTE, minute, "ewm-main-service", "/events", 5L)));
+        counter.start();
+
+        List<ViewStats> stats = counter.getStats(minute, minute.plusMinutes(1), null);
+
+        assertThat(stats.get(0).getHits(), is(5L));
+        assertThat(counter.getCoverageStart().isBefore(minute), is(true));
+    }
+
+    @Test
+    void futureHitOutsideLookaheadKeepsCoverageTest() {
+        RecentHitCounter counter = makeCounter(true);
+        LocalDateTime future = Granularity.MINUTE.floor(LocalDateTime.now()).plusHours(1);
+        counter.start();
+        LocalDateTime coverageStart = counter.getCoverageStart();
+
+        counter.onStatsSaved(List.of(makeStat("/events", future)));
+
+        assertThat(counter.getCoverageStart(), is(coverageStart));
+        assertThat(counter.getStats(future, future.plusMinutes(1), null).size(), is(0));
+    }
+
+    @Test
+    void tooManyFutureHitsMoveCoverageTest() {
+        RecentHitCounter counter = makeCounter(true);
+        properties.setMaxPending(1);
+        LocalDateTime future = Granularity.MINUTE.floor(LocalDateTime.now()).plusHours(1);
+        counter.start();
+
+        counter.onStatsSaved(List.of(makeStat("/events", future), makeStat("/events", future.plusHours(1))));
+
+        assertThat(counter.getCoverageStart(), is(future.plusHours(1).plusMinutes(1)));
+    }
+
+    private RecentHitCounter makeCounter(boolean rollups) {
+        properties.setEnabled(true);
+        RollupProperties rollupProperties = new RollupProperties();
+        rollupProperties.setEnabled(rollups);
+        return new RecentHitCounter(properties, rollupProperties, rollupRepository);
+    }
+
+    private Stat makeStat(String uri, LocalDateTime timestamp) {
+        return Stat.builder()
+                .app("ewm-main-service")
+                .uri(uri)
+                .ip("192.168.0.1")
+                .timestamp(timestamp)
+                .build();
+    }
+}
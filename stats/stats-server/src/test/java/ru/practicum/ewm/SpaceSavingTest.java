@@ -0,0 +1,50 @@
+package ru.practicum.ewm;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.ewm.sketch.SpaceSaving;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class SpaceSavingTest {
+
+    @Test
+    void findHeavyHittersTest() {
+        SpaceSaving<String> summary = new SpaceSaving<>(10);
+        for (int i = 0; i < 1000; i++) {
+            summary.offer("/events/" + (i % 100), 1);
+            if (i % 2 == 0) {
+                summary.offer("/events", 1);
+            }
+        }
+
+        List<SpaceSaving.Counter<String>> top = summary.top(1);
+
+        assertThat(top.get(0).getKey(), is("/events"));
+        assertThat(top.get(0).getCount(), greaterThanOrEqualTo(500L));
+        assertThat(top.get(0).getCount() - top.get(0).getError(), lessThanOrEqualTo(500L));
+    }
+
+    @Test
+    void mergeTest() {
+        SpaceSaving<String> first = new SpaceSaving<>(3);
+        first.offer("/events", 5);
+        first.offer("/events/1", 2);
+        SpaceSaving<String> second = new SpaceSaving<>(3);
+        second.offer("/events", 1);
+        second.offer("/events/2", 4);
+
+        first.merge(second);
+        List<SpaceSaving.Counter<String>> top = first.top(3);
+
+        assertThat(top.size(), is(3));
+        assertThat(top.get(0).getKey(), is("/events"));
+        assertThat(top.get(0).getCount(), is(6L));
+        assertThat(top.get(1).getKey(), is("/events/2"));
+        assertThat(top.get(1).getCount(), is(4L));
+    }
+}
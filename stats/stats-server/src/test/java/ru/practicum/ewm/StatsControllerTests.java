@@ -5,28 +5,40 @@ import org.instancio.Instancio;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.ewm.config.IngestProperties;
 import ru.practicum.ewm.controller.StatsController;
+import org.springframework.test.web.servlet.MvcResult;
 import ru.practicum.ewm.service.StatsService;
+import ru.practicum.ewm.service.StatsStream;
 
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.Matchers.is;
 import static org.instancio.Select.field;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@WebMvcTest(controllers = StatsController.class)
+@WebMvcTest(controllers = StatsController.class, properties = "stats.ingest.batch-chunk-size=2")
+@EnableConfigurationProperties(IngestProperties.class)
 public class StatsControllerTests {
     @MockBean
     private StatsService service;
@@ -55,11 +67,82 @@ public class StatsControllerTests {
                 .andExpect(status().isCreated());
     }
 
+    @Test
+    void saveDataRequestWithWrongIp() throws Exception {
+        endpointHit.setIp(":::");
+
+        mvc.perform(post("/hit")
+                        .content(mapper.writeValueAsString(endpointHit))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.ip", is("The ip field is not an IP address")));
+        verify(service, times(0)).saveDataRequest(any());
+    }
+
+    @Test
+    void saveDataRequestWithTooLargeWeight() throws Exception {
+        endpointHit.setWeight(EndpointHit.MAX_WEIGHT + 1);
+
+        mvc.perform(post("/hit")
+                        .content(mapper.writeValueAsString(endpointHit))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.weight", is("The weight must not exceed 1000")));
+        verify(service, times(0)).saveDataRequest(any());
+    }
+
+    @Test
+    void saveDataRequests() throws Exception {
+        Integer expectedSaved = 2;
+
+        when(service.saveDataRequests(any()))
+                .thenReturn(new EndpointHitBatchResult(2, 0, List.of()));
+
+        mvc.perform(post("/hit/batch")
+                        .content(mapper.writeValueAsString(List.of(endpointHit, endpointHit)))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.saved", is(expectedSaved)));
+    }
+
+    @Test
+    void saveDataRequestsStream() throws Exception {
+        String hit = mapper.writeValueAsString(endpointHit) + "\n";
+        String body = hit + hit + "\n" + hit + "{not a hit}\n" + hit;
+
+        when(service.saveDataRequests(any()))
+                .thenAnswer(invocation -> {
+                    List<EndpointHit> hits = invocation.getArgument(0);
+                    List<EndpointHitError> errors = new ArrayList<>();
+                    for (int i = 0; i < hits.size(); i++) {
+                        if (hits.get(i) == null) {
+                            errors.add(new EndpointHitError(i, Map.of("hit", "The hit is malformed")));
+                        }
+                    }
+                    return new EndpointHitBatchResult(hits.size() - errors.size(), errors.size(), errors);
+                });
+
+        mvc.perform(post("/hit/batch")
+                        .content(body)
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType("application/x-ndjson"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.saved", is(4)))
+                .andExpect(jsonPath("$.rejected", is(1)))
+                .andExpect(jsonPath("$.errors[0].index", is(3)))
+                .andExpect(jsonPath("$.errors[0].errors.hit", is("The hit is malformed")));
+
+        verify(service, times(3)).saveDataRequests(any());
+    }
+
     @Test
     void getStats() throws Exception {
         Integer expectedSize = 2;
 
-        when(service.getStats(anyString(), anyString(), any(), anyString()))
+        when(service.getStats(anyString(), anyString(), any(), anyString(), any(), any()))
                 .thenReturn(List.of(viewStats1, viewStats2));
 
         mvc.perform(get("/stats")
@@ -77,6 +160,100 @@ public class StatsControllerTests {
                 .andExpect(jsonPath("$.[1].hits", is(viewStats2.getHits().intValue())));
     }
 
+    @Test
+    void getTopStats() throws Exception {
+        Integer expectedSize = 1;
+
+        when(service.getTopStats(anyString(), anyString(), any(), any()))
+                .thenReturn(List.of(viewStats1));
+
+        mvc.perform(get("/stats/top")
+                        .param("start", "2023-01-05 10:40:00")
+                        .param("end", "2023-12-15 11:30:00")
+                        .param("limit", "1")
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("size()", is(expectedSize)))
+                .andExpect(jsonPath("$.[0].uri", is(viewStats1.getUri())))
+                .andExpect(jsonPath("$.[0].hits", is(viewStats1.getHits().intValue())));
+    }
+
+    @Test
+    void getSeries() throws Exception {
+        LocalDateTime bucket = LocalDateTime.of(2023, 1, 5, 0, 0);
+        ViewStatsSeries series = new ViewStatsSeries("ewm-main-service", "/events", 4L,
+                List.of(new ViewStatsPoint(bucket, bucket.plusDays(1L).minusSeconds(1L), 4L)));
+
+        when(service.getSeries(anyString(), anyString(), eq("hour"), any()))
+                .thenReturn(List.of(series));
+
+        mvc.perform(get("/stats/series")
+                        .param("start", "2023-01-05 00:00:00")
+                        .param("end", "2023-01-05 23:59:59")
+                        .param("granularity", "hour")
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[0].uri", is("/events")))
+                .andExpect(jsonPath("$.[0].points[0].start", is("2023-01-05 00:00:00")))
+                .andExpect(jsonPath("$.[0].points[0].hits", is(4)));
+    }
+
+    @Test
+    void getSeriesWithoutWindows() throws Exception {
+        mvc.perform(post("/stats/series")
+                        .content(mapper.writeValueAsString(new StatsSeriesRequest(List.of(), null)))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.windows", is("The windows field is empty")));
+    }
+
+    @Test
+    void streamStats() throws Exception {
+        Integer expectedSize = 2;
+        StatsStream stats = action -> List.of(viewStats2, viewStats1).forEach(action);
+
+        when(service.streamStats(anyString(), anyString(), any(), anyString(), any(), eq(0)))
+                .thenReturn(stats);
+
+        MvcResult result = mvc.perform(get("/stats")
+                        .param("start", "2023-01-05 10:40:00")
+                        .param("end", "2023-12-15 11:30:00")
+                        .param("stream", "true")
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("size()", is(expectedSize)))
+                .andExpect(jsonPath("$.[0].uri", is(viewStats2.getUri())))
+                .andExpect(jsonPath("$.[1].hits", is(viewStats1.getHits().intValue())));
+    }
+
+    @Test
+    void streamStatsLines() throws Exception {
+        StatsStream stats = action -> List.of(viewStats2, viewStats1).forEach(action);
+
+        when(service.streamStats(anyString(), anyString(), any(), anyString(), eq(2), eq(0)))
+                .thenReturn(stats);
+
+        MvcResult result = mvc.perform(get("/stats")
+                        .param("start", "2023-01-05 10:40:00")
+                        .param("end", "2023-12-15 11:30:00")
+                        .param("limit", "2")
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .accept("application/x-ndjson"))
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(mapper.writeValueAsString(viewStats2) + "\n"
+                        + mapper.writeValueAsString(viewStats1)));
+    }
+
     private ViewStats makeViewStats(String uri, Long hits) {
 
         return Instancio.of(ViewStats.class)
@@ -93,6 +270,7 @@ public class StatsControllerTests {
                 .set(field(EndpointHit::getUri), "/events")
                 .set(field(EndpointHit::getIp), "192.168.0.1")
                 .set(field(EndpointHit::getTimestamp), LocalDateTime.now().plusDays(10L))
+                .set(field(EndpointHit::getWeight), 1)
                 .create();
     }
 }
@@ -0,0 +1,117 @@
+package ru.practicum.ewm;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.ewm.config.PartitionProperties;
+import ru.practicum.ewm.constants.Granularity;
+import ru.practicum.ewm.constants.PartitionInterval;
+import ru.practicum.ewm.model.Stat;
+import ru.practicum.ewm.model.StatPartition;
+import ru.practicum.ewm.model.StatRollup;
+import ru.practicum.ewm.repository.StatsPartitionRepository;
+import ru.practicum.ewm.repository.StatsRepository;
+import ru.practicum.ewm.repository.StatsRollupRepository;
+import ru.practicum.ewm.repository.StatsSketchRepository;
+import ru.practicum.ewm.service.StatsPartitionManager;
+import ru.practicum.ewm.service.StatsWriter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+@Transactional
+@SpringBootTest
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@AutoConfigureTestDatabase
+public class StatsPartitionManagerTest {
+    private final StatsPartitionManager partitionManager;
+    private final StatsPartitionRepository partitionRepository;
+    private final StatsWriter writer;
+    private final StatsRepository repository;
+    private final StatsRollupRepository rollupRepository;
+    private final StatsSketchRepository sketchRepository;
+    private final PartitionProperties properties;
+
+    @Test
+    void createUpcomingPartitionsTest() {
+        partitionManager.maintain(LocalDateTime.of(2030, 1, 15, 10, 0));
+
+        assertThat(partitionNames(), hasItems("statistics_p2030_01", "statistics_p2030_02", "statistics_p2030_03"));
+    }
+
+    @Test
+    void createPartitionTwiceTest() {
+        StatPartition partition = new StatPartition("statistics_p2031_01",
+                LocalDateTime.of(2031, 1, 1, 0, 0), LocalDateTime.of(2031, 2, 1, 0, 0));
+
+        partitionRepository.create(partition);
+        partitionRepository.create(partition);
+
+        assertThat(partitionNames(), hasItem("statistics_p2031_01"));
+    }
+
+    @Test
+    void keepExpiredPartitionsByDefaultTest() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expired = now.minusDays(400);
+        partitionManager.maintain(expired);
+        writer.write(List.of(makeStat(expired), makeStat(now)));
+        repository.flush();
+
+        partitionManager.maintain(now);
+
+        assertThat(repository.findAll().size(), is(2));
+        assertThat(partitionNames(), hasItem("statistics_p" + PartitionInterval.MONTH.getSuffix().format(expired)));
+    }
+
+    @Test
+    void removeExpiredPartitionsTest() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expired = now.minusDays(400);
+        LocalDateTime unpartitioned = expired.minusMonths(2);
+        partitionManager.maintain(expired);
+        writer.write(List.of(makeStat(unpartitioned), makeStat(expired), makeStat(now)));
+        repository.flush();
+
+        properties.setRetentionEnabled(true);
+        try {
+            partitionManager.maintain(now);
+        } finally {
+            properties.setRetentionEnabled(false);
+        }
+
+        List<Stat> stats = repository.findAll();
+        assertThat(stats.size(), is(1));
+        assertThat(stats.get(0).getTimestamp(), is(now));
+        assertThat(partitionNames(), not(hasItem("statistics_p" + PartitionInterval.MONTH.getSuffix().format(expired))));
+        assertThat(rollupRepository.findBucketsSince(Granularity.HOUR, unpartitioned).stream()
+                .map(StatRollup::getBucket)
+                .collect(Collectors.toList()), is(List.of(Granularity.HOUR.floor(now))));
+        assertThat(sketchRepository.findSketches(unpartitioned, now.plusHours(1), null).size(), is(1));
+    }
+
+    private List<String> partitionNames() {
+        return partitionRepository.findPartitions().stream()
+                .map(StatPartition::getName)
+                .collect(Collectors.toList());
+    }
+
+    private Stat makeStat(LocalDateTime timestamp) {
+        return Stat.builder()
+                .app("ewm-main-service")
+                .uri("/events")
+                .ip("192.168.0.1")
+                .timestamp(timestamp)
+                .build();
+    }
+}
@@ -0,0 +1,85 @@
+package ru.practicum.ewm;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.practicum.ewm.config.CacheProperties;
+import ru.practicum.ewm.model.Stat;
+import ru.practicum.ewm.service.StatsQueryCache;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class StatsQueryCacheTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CacheProperties properties = new CacheProperties();
+    private final StatsQueryCache cache = new StatsQueryCache(properties, meterRegistry);
+    private final LocalDateTime start = LocalDateTime.of(2023, 1, 1, 0, 0);
+    private final LocalDateTime end = LocalDateTime.of(2023, 1, 31, 0, 0);
+    private final AtomicInteger queries = new AtomicInteger();
+
+    @Test
+    void cacheHitTest() {
+        query(start, end, List.of("/events/1", "/events"));
+        query(start, end, List.of("/events", "/events/1"));
+
+        assertThat(queries.get(), is(1));
+        assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count(), is(1.0));
+        assertThat(meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count(), is(1.0));
+    }
+
+    @Test
+    void invalidateAffectedWindowsTest() {
+        properties.setEnabled(true);
+        LocalDateTime laterStart = LocalDateTime.of(2023, 3, 1, 0, 0);
+        LocalDateTime laterEnd = LocalDateTime.of(2023, 3, 31, 0, 0);
+        query(start, end, null);
+        query(laterStart, laterEnd, null);
+
+        cache.onStatsSaved(List.of(stat(LocalDateTime.of(2023, 1, 15, 12, 30))));
+        query(start, end, null);
+        query(laterStart, laterEnd, null);
+
+        assertThat(queries.get(), is(3));
+        assertThat(meterRegistry.get("stats.cache.invalidations").counter().count(), is(1.0));
+    }
+
+    @Test
+    void cacheOnlyLoadsNotOverlappingConcurrentWritesTest() {
+        LocalDateTime laterStart = LocalDateTime.of(2023, 3, 1, 0, 0);
+        LocalDateTime laterEnd = LocalDateTime.of(2023, 3, 31, 0, 0);
+        queryDuringWrite(start, end, LocalDateTime.of(2023, 3, 15, 12, 30));
+        queryDuringWrite(laterStart, laterEnd, LocalDateTime.of(2023, 3, 15, 12, 30));
+        query(start, end, null);
+        query(laterStart, laterEnd, null);
+
+        assertThat(queries.get(), is(3));
+    }
+
+    private void queryDuringWrite(LocalDateTime from, LocalDateTime to, LocalDateTime written) {
+        cache.get(from, to, null, "false", false, () -> {
+            queries.incrementAndGet();
+            cache.invalidate(List.of(stat(written)));
+            return List.of(new ViewStats("ewm-main-service", "/events", 1L));
+        });
+    }
+
+    private Stat stat(LocalDateTime timestamp) {
+        return Stat.builder()
+                .app("ewm-main-service")
+                .uri("/events")
+                .ip("192.168.0.1")
+                .timestamp(timestamp)
+                .build();
+    }
+
+    private void query(LocalDateTime from, LocalDateTime to, List<String> uris) {
+        cache.get(from, to, uris, "false", false, () -> {
+            queries.incrementAndGet();
+            return List.of(new ViewStats("ewm-main-service", "/events", 1L));
+        });
+    }
+}
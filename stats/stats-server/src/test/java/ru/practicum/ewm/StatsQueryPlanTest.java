@@ -0,0 +1,82 @@
+package ru.practicum.ewm;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.ewm.model.Stat;
+import ru.practicum.ewm.repository.StatsRepository;
+import ru.practicum.ewm.service.StatsWriter;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+
+@Transactional
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "ru.practicum.ewm.StatsQueryPlanTest$LastStatementInspector")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@AutoConfigureTestDatabase
+public class StatsQueryPlanTest {
+    private static final String URI_INDEX = "IX_STATISTICS_URI_TIME";
+    private final StatsWriter writer;
+    private final StatsRepository repository;
+    private final JdbcTemplate jdbcTemplate;
+    private final LocalDateTime now = LocalDateTime.now().withNano(0);
+
+    @BeforeEach
+    void setUp() {
+        List<Stat> stats = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            stats.add(Stat.builder()
+                    .app("ewm-main-service")
+                    .uri("/events/" + i % 50)
+                    .ip("192.168.0." + i % 200)
+                    .timestamp(now.minusMinutes(i * 20L))
+                    .build());
+        }
+        writer.write(stats);
+        repository.flush();
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    void countHitsByUrisUsesUriIndexTest() {
+        repository.countHitsByUris(now.minusDays(7L), now, List.of("/events/1"));
+
+        assertThat(explain(LastStatementInspector.sql, now.minusDays(7L), now, "/events/1"), containsString(URI_INDEX));
+    }
+
+    @Test
+    void findStatsByUriListUsesUriIndexTest() {
+        repository.findStatsByUriList(now.minusDays(7L), now, List.of("/events/1", "/events/2"));
+
+        assertThat(explain(LastStatementInspector.sql, now.minusDays(7L), now, "/events/1", "/events/2"),
+                containsString(URI_INDEX));
+    }
+
+    private String explain(String sql, LocalDateTime from, LocalDateTime to, String... uris) {
+        List<Object> parameters = new ArrayList<>(List.of(Timestamp.valueOf(from), Timestamp.valueOf(to)));
+        parameters.addAll(List.of(uris));
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, parameters.toArray()));
+    }
+
+    public static class LastStatementInspector implements StatementInspector {
+        static volatile String sql;
+
+        @Override
+        public String inspect(String sql) {
+            LastStatementInspector.sql = sql;
+            return sql;
+        }
+    }
+}
@@ -8,13 +8,21 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.ewm.config.CacheProperties;
+import ru.practicum.ewm.config.SketchProperties;
+import ru.practicum.ewm.exceptions.WrongParamLimitException;
+import ru.practicum.ewm.exceptions.WrongParamSeriesException;
 import ru.practicum.ewm.exceptions.WrongParamUniqueException;
 import ru.practicum.ewm.model.Stat;
 import ru.practicum.ewm.repository.StatsRepository;
+import ru.practicum.ewm.service.StatsQueryCache;
 import ru.practicum.ewm.service.StatsService;
+import ru.practicum.ewm.service.StatsWriter;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -31,6 +39,10 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 public class StatsServiceImplTest {
     private final StatsService service;
     private final StatsRepository repository;
+    private final StatsWriter writer;
+    private final SketchProperties sketchProperties;
+    private final CacheProperties cacheProperties;
+    private final StatsQueryCache queryCache;
     private EndpointHit endpointHit1;
     private EndpointHit endpointHit2;
     private EndpointHit endpointHit3;
@@ -62,6 +74,25 @@ public class StatsServiceImplTest {
         assertThat(endpointHit1.getTimestamp(), is(statFromRepository.getTimestamp()));
     }
 
+    @Test
+    void saveDataRequestsTest() {
+        Integer expectedSaved = 2;
+        Integer expectedRejected = 2;
+        EndpointHit withoutUri = makeEndpointHit("", "192.168.0.1", LocalDateTime.now());
+
+        assertThat(repository.findAll(), empty());
+
+        EndpointHitBatchResult result = service.saveDataRequests(
+                Arrays.asList(endpointHit1, withoutUri, null, endpointHit2));
+
+        assertThat(result.getSaved(), is(expectedSaved));
+        assertThat(result.getRejected(), is(expectedRejected));
+        assertThat(result.getErrors().get(0).getIndex(), is(1));
+        assertThat(result.getErrors().get(0).getErrors().containsKey("uri"), is(true));
+        assertThat(result.getErrors().get(1).getIndex(), is(2));
+        assertThat(repository.findAll().size(), is(expectedSaved));
+    }
+
     @Test
     void findALLStatsTest() {
         Integer expectedSize = 2;
@@ -78,7 +109,7 @@ public class StatsServiceImplTest {
         String start = getString(startTime);
         String end = getString(endTime);
 
-        List<ViewStats> allStats = service.getStats(start, end, null, "false");
+        List<ViewStats> allStats = service.getStats(start, end, null, "false", false, false);
 
         assertThat(repository.findAll(), notNullValue());
         assertThat(allStats.size(), is(expectedSize));
@@ -106,7 +137,7 @@ public class StatsServiceImplTest {
         String start = getString(startTime);
         String end = getString(endTime);
 
-        List<ViewStats> allStats = service.getStats(start, end, null, "true");
+        List<ViewStats> allStats = service.getStats(start, end, null, "true", false, false);
 
         assertThat(repository.findAll(), notNullValue());
         assertThat(allStats.size(), is(expectedSize));
@@ -131,7 +162,7 @@ public class StatsServiceImplTest {
         String start = getString(startTime);
         String end = getString(endTime);
 
-        List<ViewStats> allStats = service.getStats(start, end, List.of("/events", "/events/1"), "true");
+        List<ViewStats> allStats = service.getStats(start, end, List.of("/events", "/events/1"), "true", false, false);
 
         assertThat(repository.findAll(), notNullValue());
         assertThat(allStats.size(), is(expectedSize));
@@ -155,7 +186,7 @@ public class StatsServiceImplTest {
         String start = getString(startTime);
         String end = getString(endTime);
 
-        List<ViewStats> allStats = service.getStats(start, end, List.of("/events", "/events/1"), "false");
+        List<ViewStats> allStats = service.getStats(start, end, List.of("/events", "/events/1"), "false", false, false);
 
         assertThat(repository.findAll(), notNullValue());
         assertThat(allStats.size(), is(expectedSize));
@@ -167,6 +198,298 @@ public class StatsServiceImplTest {
         assertThat("/events/1", is(allStats.get(0).getUri()));
     }
 
+    @Test
+    void findSampledStatsTest() {
+        Long expectedHits = 11L;
+        Stat sampled = Stat.builder()
+                .app(endpointHit1.getApp())
+                .uri(endpointHit1.getUri())
+                .ip(endpointHit1.getIp())
+                .timestamp(endpointHit1.getTimestamp())
+                .weight(10)
+                .build();
+
+        service.saveDataRequest(endpointHit1);
+        writer.write(List.of(sampled));
+        List<ViewStats> stats = service.getStats(getString(LocalDateTime.now().minusDays(3)),
+                getString(LocalDateTime.now()), List.of(endpointHit1.getUri()), "false", false, false);
+
+        assertThat(stats.get(0).getHits(), is(expectedHits));
+    }
+
+    @Test
+    void findStatsFromRollupsTest() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        List<EndpointHit> endpointHits = List.of(
+                makeEndpointHit("/events", "192.168.0.1", now.minusDays(3L).minusSeconds(17L)),
+                makeEndpointHit("/events", "192.168.0.2", now.minusDays(2L).minusHours(5L)),
+                makeEndpointHit("/events/1", "192.168.0.1", now.minusHours(7L).minusMinutes(3L)),
+                makeEndpointHit("/events/1", "192.168.0.3", now.minusMinutes(42L)),
+                makeEndpointHit("/events", "192.168.0.4", now.minusSeconds(5L)),
+                makeEndpointHit("/events/2", "192.168.0.5", now.minusDays(9L)));
+        service.saveDataRequests(endpointHits);
+
+        List<LocalDateTime[]> windows = List.of(
+                new LocalDateTime[]{now.minusDays(4L).plusSeconds(13L), now},
+                new LocalDateTime[]{now.minusDays(3L).minusSeconds(17L), now.minusMinutes(42L)},
+                new LocalDateTime[]{now.minusHours(8L), now.minusMinutes(43L)},
+                new LocalDateTime[]{now.minusDays(30L), now.plusDays(1L)});
+
+        for (LocalDateTime[] window : windows) {
+            List<ViewStats> fromRollups = service.getStats(getString(window[0]), getString(window[1]), null, "false",
+                    false, false);
+            List<ViewStats> fromRawRows = repository.findALLStats(window[0], window[1]);
+
+            assertThat(fromRollups.size(), is(fromRawRows.size()));
+            for (ViewStats raw : fromRawRows) {
+                assertThat(fromRollups.stream()
+                        .filter(viewStats -> viewStats.getUri().equals(raw.getUri()))
+                        .findFirst()
+                        .orElseThrow()
+                        .getHits(), is(raw.getHits()));
+            }
+        }
+    }
+
+    @Test
+    void findStatsFromRollupsIncludesEndTest() {
+        Long expectedHits = 2L;
+        LocalDateTime end = LocalDateTime.now().withNano(0).minusHours(1L);
+        LocalDateTime start = end.minusDays(2L);
+        service.saveDataRequests(List.of(
+                makeEndpointHit("/events", "192.168.0.1", start),
+                makeEndpointHit("/events", "192.168.0.2", end),
+                makeEndpointHit("/events", "192.168.0.3", end.plusSeconds(1L))));
+
+        List<ViewStats> stats = service.getStats(getString(start), getString(end), null, "false", false, false);
+
+        assertThat(stats.size(), is(1));
+        assertThat(stats.get(0).getHits(), is(expectedHits));
+    }
+
+    @Test
+    void findCachedStatsOnUnalignedWindowTest() {
+        Long expectedHits = 1L;
+        LocalDateTime start = LocalDateTime.now().withNano(0).minusHours(1L).withSecond(30);
+        LocalDateTime end = start.plusMinutes(5L);
+        service.saveDataRequests(List.of(
+                makeEndpointHit("/events", "192.168.0.1", start.minusSeconds(10L)),
+                makeEndpointHit("/events", "192.168.0.2", start.plusMinutes(2L)),
+                makeEndpointHit("/events", "192.168.0.3", end.plusSeconds(10L))));
+
+        cacheProperties.setEnabled(true);
+        try {
+            List<ViewStats> stats = service.getStats(getString(start), getString(end), null, "false", false, false);
+            List<ViewStats> cached = service.getStats(getString(start), getString(end), null, "false", false, false);
+
+            assertThat(stats.get(0).getHits(), is(expectedHits));
+            assertThat(cached.get(0).getHits(), is(expectedHits));
+        } finally {
+            cacheProperties.setEnabled(false);
+            queryCache.invalidateAll();
+        }
+    }
+
+    @Test
+    void findUniqueStatsFromSketchesTest() {
+        Long expectedEventsVisitors = 3L;
+        Long expectedEventVisitors = 1L;
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        service.saveDataRequests(List.of(
+                makeEndpointHit("/events", "192.168.0.1", now.minusDays(3L)),
+                makeEndpointHit("/events", "192.168.0.1", now.minusDays(2L)),
+                makeEndpointHit("/events", "192.168.0.2", now.minusDays(2L)),
+                makeEndpointHit("/events", "192.168.0.3", now.minusSeconds(5L)),
+                makeEndpointHit("/events/1", "192.168.0.1", now.minusHours(2L)),
+                makeEndpointHit("/events/1", "192.168.0.1", now.minusHours(1L))));
+        String start = getString(now.minusDays(5L));
+        String end = getString(now);
+
+        List<ViewStats> allStats = service.getStats(start, end, null, "true", true, false);
+        List<ViewStats> statsByUris = service.getStats(start, end, List.of("/events/1"), "true", true, false);
+
+        assertThat(allStats.size(), is(2));
+        assertThat("/events", is(allStats.get(0).getUri()));
+        assertThat(allStats.get(0).getHits(), is(expectedEventsVisitors));
+        assertThat("/events/1", is(allStats.get(1).getUri()));
+        assertThat(allStats.get(1).getHits(), is(expectedEventVisitors));
+        assertThat(statsByUris.size(), is(1));
+        assertThat(statsByUris.get(0).getHits(), is(expectedEventVisitors));
+    }
+
+    @Test
+    void findUniqueStatsFromMixedPrecisionSketchesTest() {
+        Long expectedVisitors = 3L;
+        int precision = sketchProperties.getPrecision();
+        LocalDateTime end = LocalDateTime.now().withNano(0);
+        String start = getString(end.minusDays(5L));
+
+        service.saveDataRequest(makeEndpointHit("/events", "192.168.0.1", end.minusDays(3L)));
+        sketchProperties.setPrecision(10);
+        try {
+            service.saveDataRequests(List.of(
+                    makeEndpointHit("/events", "192.168.0.2", end.minusDays(2L)),
+                    makeEndpointHit("/events", "192.168.0.3", end)));
+
+            List<ViewStats> stats = service.getStats(start, getString(end), null, "true", true, false);
+
+            assertThat(stats.size(), is(1));
+            assertThat(stats.get(0).getHits(), is(expectedVisitors));
+        } finally {
+            sketchProperties.setPrecision(precision);
+        }
+    }
+
+    @Test
+    void findTopStatsExactTest() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        service.saveDataRequests(List.of(
+                makeEndpointHit("/events", "192.168.0.1", now.minusDays(3L)),
+                makeEndpointHit("/events/1", "192.168.0.1", now.minusDays(2L)),
+                makeEndpointHit("/events/1", "192.168.0.2", now.minusHours(2L)),
+                makeEndpointHit("/events/2", "192.168.0.3", now.minusHours(1L))));
+
+        List<ViewStats> top = service.getTopStats(getString(now.minusDays(5L)), getString(now), 1, true);
+
+        assertThat(top.size(), is(1));
+        assertThat(top.get(0).getUri(), is("/events/1"));
+        assertThat(top.get(0).getHits(), is(2L));
+    }
+
+    @Test
+    void getStatsByPatternTest() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        service.saveDataRequests(List.of(
+                makeEndpointHit("/events", "192.168.0.1", now.minusDays(3L)),
+                makeEndpointHit("/events/1", "192.168.0.1", now.minusDays(2L)),
+                makeEndpointHit("/events/2", "192.168.0.2", now.minusHours(2L)),
+                makeEndpointHit("/events/2", "192.168.0.3", now.minusHours(1L)),
+                makeEndpointHit("/compilations/1", "192.168.0.3", now.minusHours(1L))));
+        String start = getString(now.minusDays(5L));
+        String end = getString(now);
+
+        List<ViewStats> byPrefix = service.getStats(start, end, List.of("/events/*"), "false", false, false);
+        List<ViewStats> grouped = service.getStats(start, end, List.of("/events/*", "/*/1"), "false", false, true);
+        List<ViewStats> unknown = service.getStats(start, end, List.of("/users/*"), "false", false, false);
+
+        assertThat(byPrefix.size(), is(2));
+        assertThat(byPrefix.get(0).getUri(), is("/events/2"));
+        assertThat(grouped.size(), is(2));
+        assertThat(grouped.get(0).getUri(), is("/events/*"));
+        assertThat(grouped.get(0).getHits(), is(3L));
+        assertThat(grouped.get(1).getUri(), is("/*/1"));
+        assertThat(grouped.get(1).getHits(), is(1L));
+        assertThat(unknown, empty());
+    }
+
+    @Test
+    void streamStatsTest() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        service.saveDataRequests(List.of(
+                makeEndpointHit("/events", "192.168.0.1", now.minusDays(3L)),
+                makeEndpointHit("/events/1", "192.168.0.1", now.minusDays(2L)),
+                makeEndpointHit("/events/1", "192.168.0.1", now.minusHours(2L)),
+                makeEndpointHit("/events/1", "192.168.0.2", now.minusHours(2L)),
+                makeEndpointHit("/events/2", "192.168.0.3", now.minusHours(1L)),
+                makeEndpointHit("/events/2", "192.168.0.3", now.minusHours(1L))));
+        repository.flush();
+        String start = getString(now.minusDays(5L));
+        String end = getString(now);
+
+        List<ViewStats> all = new ArrayList<>();
+        service.streamStats(start, end, null, "false", null, 0).forEach(all::add);
+        List<ViewStats> page = new ArrayList<>();
+        service.streamStats(start, end, null, "false", 1, 1).forEach(page::add);
+        List<ViewStats> unique = new ArrayList<>();
+        service.streamStats(start, end, List.of("/events/2", "/events/1"), "true", null, 0).forEach(unique::add);
+
+        assertThat(all.size(), is(3));
+        assertThat(all.get(0).getUri(), is("/events/1"));
+        assertThat(all.get(0).getHits(), is(3L));
+        assertThat(page.size(), is(1));
+        assertThat(page.get(0).getUri(), is("/events/2"));
+        assertThat(unique.size(), is(2));
+        assertThat(unique.get(0).getUri(), is("/events/1"));
+        assertThat(unique.get(0).getHits(), is(2L));
+        assertThat(unique.get(1).getUri(), is("/events/2"));
+        assertThat(unique.get(1).getHits(), is(1L));
+    }
+
+    @Test
+    void verifyStreamStatsException() {
+        String start = getString(LocalDateTime.now().minusDays(1L));
+        String end = getString(LocalDateTime.now());
+
+        final WrongParamLimitException exception = assertThrows(
+                WrongParamLimitException.class,
+                () -> service.streamStats(start, end, null, "false", 10, -1));
+
+        assertThat("The offset must not be negative", is(exception.getMessage()));
+    }
+
+    @Test
+    void getSeriesByGranularityTest() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        service.saveDataRequests(List.of(
+                makeEndpointHit("/events", "192.168.0.1", now.minusDays(3L)),
+                makeEndpointHit("/events/1", "192.168.0.1", now.minusDays(2L)),
+                makeEndpointHit("/events/1", "192.168.0.2", now.minusDays(2L)),
+                makeEndpointHit("/events/1", "192.168.0.2", now.minusDays(6L))));
+        repository.flush();
+
+        List<ViewStatsSeries> series = service.getSeries(getString(now.minusDays(5L)), getString(now), "day", null);
+
+        assertThat(series.size(), is(2));
+        assertThat(series.get(0).getUri(), is("/events/1"));
+        assertThat(series.get(0).getHits(), is(2L));
+        assertThat(series.get(0).getPoints().size(), is(1));
+        assertThat(series.get(0).getPoints().get(0).getStart(), is(now.minusDays(2L).toLocalDate().atStartOfDay()));
+        assertThat(series.get(1).getPoints().get(0).getHits(), is(1L));
+    }
+
+    @Test
+    void getSeriesByWindowsTest() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        service.saveDataRequests(List.of(
+                makeEndpointHit("/events", "192.168.0.1", now.minusHours(3L)),
+                makeEndpointHit("/events", "192.168.0.1", now.minusHours(2L)),
+                makeEndpointHit("/events/1", "192.168.0.2", now.minusHours(1L))));
+        repository.flush();
+
+        List<ViewStatsSeries> series = service.getSeries(new StatsSeriesRequest(List.of(
+                new StatsWindow(now.minusHours(4L), now.minusHours(2L)),
+                new StatsWindow(now.minusHours(3L), now)), List.of("/events")));
+
+        assertThat(series.size(), is(1));
+        assertThat(series.get(0).getPoints().size(), is(2));
+        assertThat(series.get(0).getPoints().get(0).getHits(), is(2L));
+        assertThat(series.get(0).getPoints().get(1).getHits(), is(2L));
+    }
+
+    @Test
+    void verifyGetSeriesException() {
+        String start = getString(LocalDateTime.now().minusDays(1L));
+        String end = getString(LocalDateTime.now());
+
+        final WrongParamSeriesException exception = assertThrows(
+                WrongParamSeriesException.class,
+                () -> service.getSeries(start, end, "week", null));
+
+        assertThat("The wrong param of the granularity", is(exception.getMessage()));
+    }
+
+    @Test
+    void verifyGetTopStatsException() {
+        String start = getString(LocalDateTime.now().minusDays(1L));
+        String end = getString(LocalDateTime.now());
+
+        final WrongParamLimitException exception = assertThrows(
+                WrongParamLimitException.class,
+                () -> service.getTopStats(start, end, 0, false));
+
+        assertThat("The limit must be positive", is(exception.getMessage()));
+    }
+
     @Test
     void verifyGetStatsException() {
         LocalDateTime startTime = LocalDateTime.of(2022, 12, 1, 1, 0);
@@ -176,7 +499,7 @@ public class StatsServiceImplTest {
 
         final WrongParamUniqueException exception = assertThrows(
                 WrongParamUniqueException.class,
-                () -> service.getStats(start, end, List.of("/events", "/events/1"), "something"));
+                () -> service.getStats(start, end, List.of("/events", "/events/1"), "something", false, false));
 
         assertThat("The wrong param of the unique", is(exception.getMessage()));
     }
@@ -193,6 +516,7 @@ public class StatsServiceImplTest {
                 .set(field(EndpointHit::getUri), uri)
                 .set(field(EndpointHit::getIp), ip)
                 .set(field(EndpointHit::getTimestamp), timeStamp)
+                .set(field(EndpointHit::getWeight), 1)
                 .create();
     }
 }
@@ -0,0 +1,76 @@
+package ru.practicum.ewm;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.ewm.config.RollupProperties;
+import ru.practicum.ewm.config.TopProperties;
+import ru.practicum.ewm.constants.Granularity;
+import ru.practicum.ewm.model.Stat;
+import ru.practicum.ewm.model.StatRollup;
+import ru.practicum.ewm.repository.StatsRollupRepository;
+import ru.practicum.ewm.service.TopHitsService;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TopHitsServiceTest {
+    private final StatsRollupRepository rollupRepository = mock(StatsRollupRepository.class);
+
+    @Test
+    void getTopTest() {
+        LocalDateTime hour = Granularity.HOUR.floor(LocalDateTime.now());
+        when(rollupRepository.findBucketsSince(eq(Granularity.HOUR), any())).thenReturn(List.of(
+                new StatRollup(Granularity.HOUR, hour.minusHours(2), "ewm-main-service", "/events/1", 3L)));
+        TopHitsService service = makeService();
+        service.start();
+
+        service.onStatsSaved(List.of(
+                makeStat("/events/2", hour.minusHours(1)),
+                makeStat("/events/2", hour.minusHours(1)),
+                makeStat("/events/3", hour)));
+        List<ViewStats> top = service.getTop(hour.minusDays(1), hour.plusHours(1),
+                List.of(new ViewStats("ewm-main-service", "/events/2", 2L)), 2);
+
+        assertThat(top.size(), is(2));
+        assertThat(top.get(0).getUri(), is("/events/2"));
+        assertThat(top.get(0).getHits(), is(4L));
+        assertThat(top.get(1).getUri(), is("/events/1"));
+        assertThat(top.get(1).getHits(), is(3L));
+    }
+
+    @Test
+    void skipHitsBeyondLookaheadTest() {
+        LocalDateTime hour = Granularity.HOUR.floor(LocalDateTime.now());
+        LocalDateTime future = hour.plusDays(2);
+        TopHitsService service = makeService();
+        service.start();
+
+        service.onStatsSaved(List.of(makeStat("/events/1", hour), makeStat("/events/2", future)));
+
+        assertThat(service.getTop(future, future.plusHours(1), List.of(), 2).size(), is(0));
+        assertThat(service.isComplete(hour, hour.plusHours(1)), is(true));
+        assertThat(service.isComplete(hour, future.plusHours(1)), is(false));
+    }
+
+    private TopHitsService makeService() {
+        TopProperties properties = new TopProperties();
+        properties.setEnabled(true);
+        properties.setCapacity(10);
+        return new TopHitsService(properties, new RollupProperties(), rollupRepository);
+    }
+
+    private Stat makeStat(String uri, LocalDateTime timestamp) {
+        return Stat.builder()
+                .app("ewm-main-service")
+                .uri(uri)
+                .ip("192.168.0.1")
+                .timestamp(timestamp)
+                .build();
+    }
+}
@@ -0,0 +1,42 @@
+package ru.practicum.ewm;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.ewm.config.UriIndexProperties;
+import ru.practicum.ewm.repository.StatsDictionaryRepository;
+import ru.practicum.ewm.service.UriIndex;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class UriIndexTest {
+    private final StatsDictionaryRepository dictionaryRepository = mock(StatsDictionaryRepository.class);
+    private final UriIndexProperties properties = new UriIndexProperties();
+
+    @Test
+    void expandUrisCreatedElsewhereTest() {
+        properties.setRefreshInterval(Duration.ZERO);
+        when(dictionaryRepository.findAllUris()).thenReturn(Map.of(1, "/events/1"));
+        when(dictionaryRepository.findUrisAfter(1)).thenReturn(Map.of(2, "/events/2"));
+        UriIndex uriIndex = new UriIndex(dictionaryRepository, properties);
+        uriIndex.load();
+
+        assertThat(uriIndex.expand(List.of("/events/*")), containsInAnyOrder("/events/1", "/events/2"));
+    }
+
+    @Test
+    void dropUrisRemovedOnReloadTest() {
+        properties.setRefreshInterval(Duration.ZERO);
+        properties.setReloadInterval(Duration.ZERO);
+        when(dictionaryRepository.findAllUris()).thenReturn(Map.of(1, "/events/1"), Map.of(2, "/events/2"));
+        UriIndex uriIndex = new UriIndex(dictionaryRepository, properties);
+        uriIndex.load();
+
+        assertThat(uriIndex.expand(List.of("/events/*")), containsInAnyOrder("/events/2"));
+    }
+}
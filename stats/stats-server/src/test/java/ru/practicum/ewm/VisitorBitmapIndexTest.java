@@ -0,0 +1,145 @@
+package ru.practicum.ewm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.practicum.ewm.config.BitmapProperties;
+import ru.practicum.ewm.model.Stat;
+import ru.practicum.ewm.model.StatDayRows;
+import ru.practicum.ewm.model.StatVisitor;
+import ru.practicum.ewm.repository.StatsRepository;
+import ru.practicum.ewm.service.VisitorBitmapIndex;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class VisitorBitmapIndexTest {
+    private final StatsRepository repository = mock(StatsRepository.class);
+    private final LocalDateTime day = LocalDateTime.of(2023, 1, 10, 0, 0);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void countUniqueVisitorsTest() throws IOException {
+        VisitorBitmapIndex index = makeIndex();
+        index.start();
+        index.onStatsSaved(List.of(
+                makeStat("/events", "192.168.0.1", day.plusHours(1)),
+                makeStat("/events", "192.168.0.1", day.plusDays(1)),
+                makeStat("/events", "192.168.0.2", day.plusDays(1)),
+                makeStat("/events/1", "192.168.0.3", day.plusHours(2))));
+
+        List<ViewStats> stats = index.getStats(day, day.plusDays(2), null);
+
+        assertThat(stats.size(), is(2));
+        assertThat(stats.get(0).getUri(), is("/events"));
+        assertThat(stats.get(0).getHits(), is(2L));
+        assertThat(stats.get(1).getHits(), is(1L));
+        index.stop();
+    }
+
+    @Test
+    void restoreFromSnapshotTest() throws IOException {
+        VisitorBitmapIndex index = makeIndex();
+        index.start();
+        index.onStatsSaved(List.of(
+                makeStat("/events", "192.168.0.1", day.plusHours(1)),
+                makeStat("/events", "192.168.0.2", day.plusHours(2))));
+        index.stop();
+
+        when(repository.countRowsByDay()).thenReturn(List.of(new StatDayRows(2023, 1, 10, 2L)));
+        VisitorBitmapIndex restored = makeIndex();
+        restored.start();
+        List<ViewStats> stats = restored.getStats(day, day.plusDays(1), List.of("/events"));
+
+        assertThat(stats.size(), is(1));
+        assertThat(stats.get(0).getHits(), is(2L));
+        restored.stop();
+    }
+
+    @Test
+    void reconcileWithStatisticsOnStartTest() throws IOException {
+        VisitorBitmapIndex index = makeIndex();
+        index.start();
+        index.onStatsSaved(List.of(
+                makeStat("/events", "192.168.0.1", day.plusHours(1)),
+                makeStat("/events", "192.168.0.1", day.plusDays(1).plusHours(1))));
+        index.stop();
+
+        when(repository.countRowsByDay()).thenReturn(List.of(
+                new StatDayRows(2023, 1, 10, 3L),
+                new StatDayRows(2023, 1, 12, 1L)));
+        when(repository.findVisitors(day, day.plusDays(1))).thenReturn(List.of(
+                makeVisitor("/events", "192.168.0.1"),
+                makeVisitor("/events", "192.168.0.2")));
+        when(repository.findVisitors(day.plusDays(2), day.plusDays(3))).thenReturn(List.of(
+                makeVisitor("/events", "192.168.0.3")));
+        VisitorBitmapIndex restored = makeIndex();
+        restored.start();
+
+        assertThat(restored.getStats(day, day.plusDays(1), null).get(0).getHits(), is(2L));
+        assertThat(restored.getStats(day.plusDays(1), day.plusDays(2), null), empty());
+        assertThat(restored.getStats(day.plusDays(2), day.plusDays(3), null).get(0).getHits(), is(1L));
+        restored.stop();
+    }
+
+    @Test
+    void pruneAndIncludeEndTest() throws IOException {
+        VisitorBitmapIndex index = makeIndex();
+        index.start();
+        index.onStatsSaved(List.of(
+                makeStat("/events", "192.168.0.1", day.plusHours(1)),
+                makeStat("/events", "192.168.0.2", day.plusDays(1).plusHours(1))));
+        when(repository.findVisitors(day.plusDays(2), day.plusDays(2).plusNanos(1000))).thenReturn(List.of(
+                makeVisitor("/events", "192.168.0.3")));
+
+        index.prune(day.plusDays(1).toLocalDate());
+        List<ViewStats> stats = index.getStats(day, day.plusDays(2), null);
+
+        assertThat(stats.get(0).getHits(), is(2L));
+        index.stop();
+    }
+
+    private VisitorBitmapIndex makeIndex() {
+        BitmapProperties properties = new BitmapProperties();
+        properties.setEnabled(true);
+        properties.setDirectory(directory.toString());
+        return new VisitorBitmapIndex(properties, repository);
+    }
+
+    private Stat makeStat(String uri, String ip, LocalDateTime timestamp) {
+        return Stat.builder()
+                .app("ewm-main-service")
+                .uri(uri)
+                .ip(ip)
+                .timestamp(timestamp)
+                .build();
+    }
+
+    private StatVisitor makeVisitor(String uri, String ip) {
+        return new StatVisitor() {
+            @Override
+            public String getApp() {
+                return "ewm-main-service";
+            }
+
+            @Override
+            public String getUri() {
+                return uri;
+            }
+
+            @Override
+            public String getIp() {
+                return ip;
+            }
+        };
+    }
+}